@@ -0,0 +1,32 @@
+package com.bookstore.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+@Configuration
+public class JacksonConfig {
+    // DTOs that support ?fields= carry a @JsonFilter; unless a request selects fields, nothing is filtered
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldFilterDefaults() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    // Served for Accept: application/cbor and application/x-jackson-smile. Built from Boot's builder
+    // (a fresh one per injection) so they share the JSON mapper's modules, date handling and filters
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -1,15 +1,32 @@
 package com.bookstore.controller;
 
+import com.bookstore.dto.LowStockAlert;
+import com.bookstore.dto.ModerationJob;
+import com.bookstore.dto.ReviewModerationRequest;
+import com.bookstore.model.User;
 import com.bookstore.repository.OrderRepository;
+import com.bookstore.security.BoundedPasswordEncoder;
+import com.bookstore.security.RateLimitFilter;
+import com.bookstore.service.BookUpdateHub;
+import com.bookstore.service.LowStockMonitor;
+import com.bookstore.service.RatingStatsReconciler;
+import com.bookstore.service.ReviewModerationService;
+import com.bookstore.service.SalesAnalyticsService;
+import com.bookstore.service.SalesCube;
+import com.bookstore.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -21,6 +38,30 @@ public class AdminController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private LowStockMonitor lowStockMonitor;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private RatingStatsReconciler ratingStatsReconciler;
+
+    @Autowired
+    private ReviewModerationService reviewModerationService;
+
+    @Autowired
+    private BookUpdateHub bookUpdateHub;
+
     @GetMapping("/stats")
     @Operation(summary = "Get admin dashboard statistics")
     public ResponseEntity<Map<String, Object>> getStats() {
@@ -48,4 +89,144 @@ public class AdminController {
         
         return ResponseEntity.ok(data);
     }
+
+    @GetMapping("/analytics")
+    @Operation(summary = "Slice and roll up units and revenue by genre, author and day")
+    public ResponseEntity<?> getAnalytics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) String author,
+            @RequestParam(defaultValue = "NONE") SalesCube.GroupBy groupBy) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("from", start);
+        data.put("to", end);
+        data.put("groupBy", groupBy);
+        try {
+            data.put("rows", salesAnalyticsService.query(genre, author, start, end, groupBy));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        data.put("cubeCells", salesAnalyticsService.getCube().getCellCount());
+        data.put("cubeBytes", salesAnalyticsService.getCube().estimatedBytes());
+
+        return ResponseEntity.ok(data);
+    }
+
+    @GetMapping("/low-stock")
+    @Operation(summary = "Get books at or below their reorder threshold")
+    public ResponseEntity<List<LowStockAlert>> getLowStock() {
+        return ResponseEntity.ok(lowStockMonitor.getLowStockBooks());
+    }
+
+    @GetMapping("/low-stock/alerts")
+    @Operation(summary = "Get recent low-stock alerts, newest first")
+    public ResponseEntity<List<LowStockAlert>> getLowStockAlerts() {
+        return ResponseEntity.ok(lowStockMonitor.getRecentAlerts());
+    }
+
+    @GetMapping("/low-stock/thresholds")
+    @Operation(summary = "Get per-genre reorder thresholds")
+    public ResponseEntity<Map<String, Integer>> getGenreThresholds() {
+        return ResponseEntity.ok(lowStockMonitor.getGenreThresholds());
+    }
+
+    @PutMapping("/low-stock/thresholds/books/{bookId}")
+    @Operation(summary = "Set or clear a book's reorder threshold")
+    public ResponseEntity<?> setBookThreshold(@PathVariable Long bookId,
+                                              @RequestParam(required = false) Integer threshold) {
+        try {
+            lowStockMonitor.setBookThreshold(bookId, threshold);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/low-stock/thresholds/genres/{genre}")
+    @Operation(summary = "Set or clear a genre's reorder threshold")
+    public ResponseEntity<?> setGenreThreshold(@PathVariable String genre,
+                                               @RequestParam(required = false) Integer threshold) {
+        try {
+            lowStockMonitor.setGenreThreshold(genre, threshold);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/users/{id}/role")
+    @Operation(summary = "Change a user's role and revoke their tokens")
+    public ResponseEntity<?> updateUserRole(@PathVariable Long id, @RequestParam User.Role role) {
+        try {
+            userService.updateRole(id, role);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/users/{id}/enabled")
+    @Operation(summary = "Enable or disable a user account")
+    public ResponseEntity<?> setUserEnabled(@PathVariable Long id, @RequestParam boolean enabled) {
+        try {
+            userService.setEnabled(id, enabled);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/auth/hashing")
+    @Operation(summary = "Get password hashing pool latency and queue metrics")
+    public ResponseEntity<Map<String, Object>> getHashingMetrics() {
+        return ResponseEntity.ok(passwordEncoder.getMetrics());
+    }
+
+    @GetMapping("/rate-limits")
+    @Operation(summary = "Get the number of tracked rate-limit keys per policy")
+    public ResponseEntity<Map<String, Integer>> getRateLimitKeys() {
+        return ResponseEntity.ok(rateLimitFilter.getTrackedKeys());
+    }
+
+    @GetMapping("/live")
+    @Operation(summary = "Get the number of open live-update connections and the books they watch")
+    public ResponseEntity<Map<String, Object>> getLiveConnections() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("subscribers", bookUpdateHub.getSubscriberCount());
+        data.put("watchedBooks", bookUpdateHub.getWatchedBookCount());
+        return ResponseEntity.ok(data);
+    }
+
+    @PostMapping("/ratings/reconcile")
+    @Operation(summary = "Verify book rating counters against the reviews table and repair drift")
+    public ResponseEntity<Map<String, Object>> reconcileRatings() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("repairedBookIds", ratingStatsReconciler.reconcile());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/reviews/moderation")
+    @Operation(summary = "Start a bulk delete/hide/unhide of reviews matching a filter")
+    public ResponseEntity<?> moderateReviews(@Valid @RequestBody ReviewModerationRequest request) {
+        try {
+            ModerationJob job = reviewModerationService.start(request);
+            return ResponseEntity.accepted().body(job);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/reviews/moderation/{jobId}")
+    @Operation(summary = "Get the progress of a bulk review moderation job")
+    public ResponseEntity<?> getModerationJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(reviewModerationService.getJob(jobId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
@@ -2,12 +2,15 @@ package com.bookstore.controller;
 
 import com.bookstore.dto.JwtResponse;
 import com.bookstore.dto.LoginRequest;
+import com.bookstore.dto.RefreshTokenRequest;
 import com.bookstore.dto.RegisterRequest;
+import com.bookstore.exception.ServiceBusyException;
 import com.bookstore.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +29,8 @@ public class AuthController {
         try {
             JwtResponse response = authService.register(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -38,7 +43,33 @@ public class AuthController {
             JwtResponse response = authService.login(request);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
+            // The provider wraps hashing failures, e.g. in InternalAuthenticationServiceException
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ServiceBusyException busy) {
+                    throw busy;
+                }
+            }
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
         }
     }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Exchange a refresh token for a new access and refresh token")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        try {
+            return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Revoke the refresh token and current access token")
+    public ResponseEntity<?> logout(@RequestBody(required = false) RefreshTokenRequest request,
+                                    @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7) : null;
+        authService.logout(request != null ? request.getRefreshToken() : null, accessToken);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,17 +1,45 @@
 package com.bookstore.controller;
 
 import com.bookstore.dto.BookDTO;
+import com.bookstore.dto.BookPriceHistory;
+import com.bookstore.dto.BookQuote;
+import com.bookstore.dto.BookQuoteRequest;
+import com.bookstore.dto.BookSuggestion;
+import com.bookstore.dto.BulkPriceUpdateRequest;
+import com.bookstore.dto.FieldSelection;
+import com.bookstore.dto.ReviewSummary;
 import com.bookstore.service.BookService;
+import com.bookstore.service.BookUpdateHub;
+import com.bookstore.service.CatalogSuggestIndex;
+import com.bookstore.service.CoPurchaseIndex;
+import com.bookstore.service.CoverStorageService;
+import com.bookstore.service.PriceHistoryService;
+import com.bookstore.service.ReviewSummaryCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -22,22 +50,64 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private ReviewSummaryCache reviewSummaryCache;
+
+    @Autowired
+    private CatalogSuggestIndex catalogSuggestIndex;
+
+    @Autowired
+    private BookUpdateHub bookUpdateHub;
+
+    @Autowired
+    private CoverStorageService coverStorageService;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    private static final String SORT_POPULAR = "popular";
+
     // ==========================
     //     NO PAGINATION
     // ==========================
     @GetMapping
     @Operation(summary = "Get all books (no pagination)")
-    public ResponseEntity<List<BookDTO>> getAllBooks(
+    public ResponseEntity<?> getAllBooks(
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String genre) {
+            @RequestParam(required = false) String genre,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String sort) {
+
+        FieldSelection selection;
+        try {
+            selection = FieldSelection.parse(fields, BookDTO.class);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (sort != null && !sort.equals(SORT_POPULAR)) {
+            return ResponseEntity.badRequest().body("Unknown sort: " + sort);
+        }
+        boolean popular = sort != null;
+
+        if (!selection.isAll()) {
+            List<BookDTO> books = bookService.getBooks(search != null && !search.isEmpty() ? search : null,
+                    genre != null && !genre.isEmpty() ? genre : null, fuzzy, selection);
+            if (popular) {
+                books = bookService.sortByPopularity(books);
+            }
+            return ResponseEntity.ok(selection.applyTo(books, BookDTO.FIELDS_FILTER));
+        }
 
+        List<BookDTO> books;
         if (search != null && !search.isEmpty()) {
-            return ResponseEntity.ok(bookService.searchAllBooks(search));
+            books = fuzzy ? bookService.fuzzySearchBooks(search) : bookService.searchAllBooks(search);
         } else if (genre != null && !genre.isEmpty()) {
-            return ResponseEntity.ok(bookService.getAllBooksByGenre(genre));
+            books = bookService.getAllBooksByGenre(genre);
         } else {
-            return ResponseEntity.ok(bookService.getAllBooks());
+            books = bookService.getAllBooks();
         }
+        return ResponseEntity.ok(popular ? bookService.sortByPopularity(books) : books);
     }
 
     @GetMapping("/genres")
@@ -46,17 +116,143 @@ public class BookController {
         return ResponseEntity.ok(bookService.getAllGenres());
     }
 
+    @GetMapping("/suggest")
+    @Operation(summary = "Autocomplete titles, authors and genres by prefix, most popular first")
+    public ResponseEntity<List<BookSuggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        int max = Math.max(1, Math.min(limit, CatalogSuggestIndex.MAX_SUGGESTIONS));
+        return ResponseEntity.ok(catalogSuggestIndex.suggest(prefix, max));
+    }
+
+    @GetMapping("/stream")
+    @Operation(summary = "Server-sent price and stock updates for a set of books")
+    public ResponseEntity<SseEmitter> streamBooks(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(bookUpdateHub.subscribe(ids));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/stream")
+    @Operation(summary = "Server-sent price and stock updates for one book")
+    public ResponseEntity<SseEmitter> streamBook(@PathVariable Long id) {
+        return streamBooks(List.of(id));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get book by ID")
-    public ResponseEntity<BookDTO> getBookById(@PathVariable Long id) {
+    public ResponseEntity<?> getBookById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        FieldSelection selection;
+        try {
+            selection = FieldSelection.parse(fields, BookDTO.class);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        try {
+            BookDTO book = selection.isAll() ? bookService.getBookById(id) : bookService.getBookById(id, selection);
+            return ResponseEntity.ok(selection.applyTo(book, BookDTO.FIELDS_FILTER));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/reviews/summary")
+    @Operation(summary = "Get rating stats and the latest reviews of a book")
+    public ResponseEntity<ReviewSummary> getReviewSummary(@PathVariable Long id) {
         try {
-            BookDTO book = bookService.getBookById(id);
-            return ResponseEntity.ok(book);
+            return ResponseEntity.ok(reviewSummaryCache.get(id));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping("/{id}/price-history")
+    @Operation(summary = "Get the prices a book has had, optionally between two times")
+    public ResponseEntity<BookPriceHistory> getPriceHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(priceHistoryService.getHistory(id, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/related")
+    @Operation(summary = "Get books most often bought together with this one")
+    public ResponseEntity<List<BookDTO>> getRelatedBooks(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "5") int limit) {
+        try {
+            int max = Math.max(1, Math.min(limit, CoPurchaseIndex.MAX_RELATED));
+            return ResponseEntity.ok(bookService.getRelatedBooks(id, max));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/covers/{filename}")
+    @Operation(summary = "Get a stored cover image, or its thumbnail for width w")
+    public ResponseEntity<Resource> getCover(
+            @PathVariable String filename,
+            @RequestParam(required = false) Integer w,
+            HttpServletRequest request) {
+        CoverStorageService.ResolvedCover cover;
+        long length;
+        try {
+            cover = coverStorageService.resolve(filename, w);
+            length = Files.size(cover.path());
+        } catch (RuntimeException | IOException e) {
+            return ResponseEntity.notFound().build();
+        }
+        Path path = cover.path();
+
+        // Names are content hashes, so a cached copy never goes stale; an original standing in for
+        // a thumbnail that is still rendering must be revalidated, or it would be kept as the thumbnail
+        String etag = "\"" + path.getFileName() + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(cover.provisional()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+        headers.setETag(etag);
+        headers.setContentType(filename.endsWith(".png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG);
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        // Whole-file reads go through Tomcat's sendfile (FileChannel.transferTo, no copy through the heap);
+        // range requests fall through to the resource path, which answers them with 206
+        if (request.getHeader(HttpHeaders.RANGE) == null
+                && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", path.toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", length);
+            headers.setContentLength(length);
+            return ResponseEntity.ok().headers(headers).build();
+        }
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+    }
+
+    @PostMapping("/{id}/cover")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Upload a JPEG or PNG cover for a book (Admin only)")
+    public ResponseEntity<?> uploadCover(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.ok(bookService.setCover(id, file));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Get current price and stock for several books plus a quote for the given quantities")
+    public ResponseEntity<BookQuote> getBatchQuote(@Valid @RequestBody BookQuoteRequest request) {
+        return ResponseEntity.ok(bookService.quote(request.getItems()));
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Create a new book (Admin only)")
@@ -81,6 +277,17 @@ public class BookController {
         }
     }
 
+    @PutMapping("/prices")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Reprice many books at once (Admin only)")
+    public ResponseEntity<?> updatePrices(@Valid @RequestBody BulkPriceUpdateRequest request) {
+        try {
+            return ResponseEntity.ok(Map.of("updated", bookService.updatePrices(request.getPrices())));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Delete a book (Admin only)")
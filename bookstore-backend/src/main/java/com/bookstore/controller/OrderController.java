@@ -1,9 +1,16 @@
 package com.bookstore.controller;
 
 import com.bookstore.dto.CreateOrderRequest;
+import com.bookstore.dto.FieldSelection;
 import com.bookstore.dto.OrderDTO;
+import com.bookstore.dto.OrderSummary;
+import com.bookstore.dto.StockHoldDTO;
+import com.bookstore.dto.StockHoldRequest;
 import com.bookstore.model.Order;
 import com.bookstore.service.OrderService;
+import com.bookstore.service.OrderSummaryCache;
+import com.bookstore.service.StockHoldService;
+import com.bookstore.service.UserDetailsImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -25,31 +32,94 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Autowired
+    private OrderSummaryCache orderSummaryCache;
+
     private String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication.getName();
     }
 
+    private UserDetailsImpl getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (UserDetailsImpl) authentication.getPrincipal();
+    }
+
     @GetMapping
     @Operation(summary = "Get all orders (Admin) or user's orders (Customer)")
-    public ResponseEntity<List<OrderDTO>> getOrders() {
-        List<OrderDTO> orders = orderService.getOrdersByUser(getCurrentUsername());
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getOrders(@RequestParam(required = false) String fields) {
+        try {
+            FieldSelection selection = FieldSelection.parse(fields, OrderDTO.class);
+            List<OrderDTO> orders = orderService.getOrdersByUser(getCurrentUsername(), selection);
+            return ResponseEntity.ok(selection.applyTo(orders, OrderDTO.FIELDS_FILTER));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/summary")
+    @Operation(summary = "Order count, lifetime spend and most recent orders of the current user")
+    public ResponseEntity<OrderSummary> getOrderSummary() {
+        return ResponseEntity.ok(orderSummaryCache.get(getCurrentUser().getId()));
+    }
+
+    @GetMapping("/history")
+    @Operation(summary = "Get a page of the current user's orders in compact form, newest first")
+    public ResponseEntity<?> getOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        try {
+            return ResponseEntity.ok(orderService.getOrderHistory(getCurrentUser().getId(), cursor, pageSize));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all orders (Admin only)")
-    public ResponseEntity<List<OrderDTO>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) String fields) {
+        try {
+            FieldSelection selection = FieldSelection.parse(fields, OrderDTO.class);
+            return ResponseEntity.ok(selection.applyTo(orderService.getAllOrders(selection), OrderDTO.FIELDS_FILTER));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID")
-    public ResponseEntity<?> getOrderById(@PathVariable Long id) {
+    public ResponseEntity<?> getOrderById(@PathVariable Long id, @RequestParam(required = false) String fields) {
         try {
-            OrderDTO order = orderService.getOrderById(id, getCurrentUsername());
-            return ResponseEntity.ok(order);
+            FieldSelection selection = FieldSelection.parse(fields, OrderDTO.class);
+            OrderDTO order = orderService.getOrderById(id, getCurrentUsername(), selection);
+            return ResponseEntity.ok(selection.applyTo(order, OrderDTO.FIELDS_FILTER));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/hold")
+    @Operation(summary = "Hold stock for the current user's cart during checkout")
+    public ResponseEntity<?> holdStock(@Valid @RequestBody StockHoldRequest request) {
+        try {
+            StockHoldDTO hold = stockHoldService.reserve(getCurrentUsername(), request.getItems());
+            return ResponseEntity.ok(hold);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/hold")
+    @Operation(summary = "Release the current user's stock hold")
+    public ResponseEntity<?> releaseStock() {
+        try {
+            stockHoldService.release(getCurrentUsername());
+            return ResponseEntity.noContent().build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -2,7 +2,9 @@ package com.bookstore.controller;
 
 import com.bookstore.dto.CreateReviewRequest;
 import com.bookstore.dto.ReviewDTO;
+import com.bookstore.dto.ReviewPage;
 import com.bookstore.service.ReviewService;
+import com.bookstore.service.UserDetailsImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -13,8 +15,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/reviews")
@@ -23,22 +23,36 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
 
-    private String getCurrentUsername() {
+    private UserDetailsImpl getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        return authentication.getName();
+        return (UserDetailsImpl) authentication.getPrincipal();
     }
 
     @GetMapping("/book/{bookId}")
-    @Operation(summary = "Get all reviews for a book")
-    public ResponseEntity<List<ReviewDTO>> getReviewsByBook(@PathVariable Long bookId) {
-        return ResponseEntity.ok(reviewService.getReviewsByBook(bookId));
+    @Operation(summary = "Get a page of reviews for a book (sort: NEWEST, HIGHEST, LOWEST)")
+    public ResponseEntity<ReviewPage> getReviewsByBook(
+            @PathVariable Long bookId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "NEWEST") ReviewService.Sort sort) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return ResponseEntity.ok(reviewService.getReviewsByBook(bookId, cursor, pageSize, sort));
+    }
+
+    @GetMapping("/me")
+    @Operation(summary = "Get a page of the current user's reviews, newest first")
+    public ResponseEntity<ReviewPage> getMyReviews(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return ResponseEntity.ok(reviewService.getReviewsByUser(getCurrentUser().getId(), cursor, pageSize));
     }
 
     @PostMapping
     @Operation(summary = "Create a new review")
     public ResponseEntity<?> createReview(@Valid @RequestBody CreateReviewRequest request) {
         try {
-            ReviewDTO review = reviewService.createReview(request, getCurrentUsername());
+            ReviewDTO review = reviewService.createReview(request, getCurrentUser());
             return ResponseEntity.status(HttpStatus.CREATED).body(review);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -49,7 +63,7 @@ public class ReviewController {
     @Operation(summary = "Update a review")
     public ResponseEntity<?> updateReview(@PathVariable Long id, @Valid @RequestBody CreateReviewRequest request) {
         try {
-            ReviewDTO review = reviewService.updateReview(id, request, getCurrentUsername());
+            ReviewDTO review = reviewService.updateReview(id, request, getCurrentUser());
             return ResponseEntity.ok(review);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -60,7 +74,7 @@ public class ReviewController {
     @Operation(summary = "Delete a review")
     public ResponseEntity<?> deleteReview(@PathVariable Long id) {
         try {
-            reviewService.deleteReview(id, getCurrentUsername());
+            reviewService.deleteReview(id, getCurrentUser());
             return ResponseEntity.noContent().build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
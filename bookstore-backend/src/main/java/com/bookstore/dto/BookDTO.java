@@ -1,16 +1,21 @@
 package com.bookstore.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(BookDTO.FIELDS_FILTER)
 public class BookDTO {
+    public static final String FIELDS_FILTER = "bookFields";
+
     private Long id;
     private String title;
     private String author;
@@ -23,4 +28,6 @@ public class BookDTO {
     private LocalDateTime createdAt;
     private Double averageRating;
     private Integer totalReviews;
+    // Review count per star value, 1 to 5
+    private Map<Integer, Integer> ratingHistogram;
 }
@@ -0,0 +1,16 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookOfferUpdate {
+    private Long bookId;
+    private BigDecimal price;
+    private Integer stock;
+}
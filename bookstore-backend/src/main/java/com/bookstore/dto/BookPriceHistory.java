@@ -0,0 +1,17 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPriceHistory {
+    private Long bookId;
+    // Oldest first; the first point is the price already in effect at the start of the range, if any
+    private List<PricePoint> points = new ArrayList<>();
+}
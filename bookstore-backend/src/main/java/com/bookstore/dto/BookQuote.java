@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookQuote {
+    private List<BookQuoteLine> lines = new ArrayList<>();
+    // Requested ids that no longer exist
+    private List<Long> missingBookIds = new ArrayList<>();
+    private BigDecimal total;
+    // True when every line exists and is in stock, i.e. the order would go through as quoted
+    private boolean orderable;
+}
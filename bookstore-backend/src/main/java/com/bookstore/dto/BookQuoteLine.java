@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookQuoteLine {
+    private Long bookId;
+    private String title;
+    private BigDecimal price;
+    private Integer stock;
+    private Integer quantity;
+    // Enough stock for the requested quantity
+    private boolean available;
+    private BigDecimal subtotal;
+}
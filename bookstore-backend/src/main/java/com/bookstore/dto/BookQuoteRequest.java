@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookQuoteRequest {
+    @NotEmpty
+    @Size(max = 200)
+    @Valid
+    private List<OrderItemRequest> items = new ArrayList<>();
+}
@@ -0,0 +1,19 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestion {
+    public enum Type {
+        TITLE, AUTHOR, GENRE
+    }
+
+    private String text;
+    private Type type;
+    // Set for TITLE suggestions
+    private Long bookId;
+}
@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPriceUpdateRequest {
+    @NotEmpty
+    @Size(max = 5000)
+    @Valid
+    private List<BookPriceUpdate> prices = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package com.bookstore.dto;
+
+import com.bookstore.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactOrder {
+    private Long id;
+    private LocalDateTime createdAt;
+    private BigDecimal totalPrice;
+    private Order.OrderStatus status;
+    private Order.PaymentStatus paymentStatus;
+    private List<CompactOrderItem> items = new ArrayList<>();
+}
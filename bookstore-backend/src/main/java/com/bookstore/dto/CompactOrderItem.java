@@ -0,0 +1,17 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactOrderItem {
+    private Long bookId;
+    private String title;
+    private Integer quantity;
+    private BigDecimal subtotal;
+}
@@ -0,0 +1,67 @@
+package com.bookstore.dto;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The fields a client asked for with ?fields=a,b,c. Services use it to skip reading what was not
+ * requested; applyTo limits serialization of DTOs annotated with the matching @JsonFilter.
+ */
+public final class FieldSelection {
+    public static final FieldSelection ALL = new FieldSelection(null);
+
+    // null means every field
+    private final Set<String> fields;
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection parse(String fields, Class<?> dtoType) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> known = Arrays.stream(dtoType.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getName)
+                .collect(Collectors.toSet());
+        Set<String> selected = new LinkedHashSet<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!known.contains(trimmed)) {
+                throw new RuntimeException("Unknown field: " + trimmed);
+            }
+            selected.add(trimmed);
+        }
+        return selected.isEmpty() ? ALL : new FieldSelection(selected);
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public MappingJacksonValue applyTo(Object body, String filterId) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (fields != null) {
+            value.setFilters(new SimpleFilterProvider()
+                    .addFilter(filterId, SimpleBeanPropertyFilter.filterOutAllExcept(fields))
+                    .setFailOnUnknownId(false));
+        }
+        return value;
+    }
+}
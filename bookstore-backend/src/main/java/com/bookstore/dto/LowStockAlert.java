@@ -0,0 +1,19 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockAlert {
+    private Long bookId;
+    private String title;
+    private String genre;
+    private Integer stock;
+    private Integer threshold;
+    private LocalDateTime raisedAt;
+}
@@ -0,0 +1,26 @@
+package com.bookstore.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Progress of a bulk moderation run; updated by the worker while the admin polls it
+@Data
+@NoArgsConstructor
+public class ModerationJob {
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private String id;
+    private ReviewModerationRequest.Action action;
+    private volatile Status status = Status.QUEUED;
+    private volatile long matched;
+    private volatile long processed;
+    private volatile int chunks;
+    private volatile int booksAffected;
+    private LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+}
@@ -1,6 +1,7 @@
 package com.bookstore.dto;
 
 import com.bookstore.model.Order;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,7 +14,10 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(OrderDTO.FIELDS_FILTER)
 public class OrderDTO {
+    public static final String FIELDS_FILTER = "orderFields";
+
     private Long id;
     private Long userId;
     private String username;
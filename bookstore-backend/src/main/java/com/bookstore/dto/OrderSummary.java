@@ -0,0 +1,23 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private long orderCount;
+    // Total of all orders that were not cancelled
+    private BigDecimal lifetimeSpend;
+    private LocalDateTime lastOrderAt;
+    private List<CompactOrder> recentOrders = new ArrayList<>();
+    // Pass as ?cursor= to /api/orders/history for the orders after recentOrders; null if there are none
+    private String historyCursor;
+}
@@ -18,4 +18,5 @@ public class ReviewDTO {
     private String comment;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private boolean hidden;
 }
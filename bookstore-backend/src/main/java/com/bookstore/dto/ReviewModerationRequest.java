@@ -0,0 +1,28 @@
+package com.bookstore.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewModerationRequest {
+    public enum Action {
+        DELETE, HIDE, UNHIDE
+    }
+
+    @NotNull
+    private Action action;
+
+    // Filters; at least one must be set and all set filters must match
+    private Long userId;
+    private Long bookId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // Case-insensitive substring of the comment
+    private String commentContains;
+}
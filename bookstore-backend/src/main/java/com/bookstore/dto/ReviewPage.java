@@ -0,0 +1,17 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewPage {
+    private List<ReviewDTO> reviews = new ArrayList<>();
+    // Opaque; pass back as ?cursor= for the next page, null on the last page
+    private String nextCursor;
+}
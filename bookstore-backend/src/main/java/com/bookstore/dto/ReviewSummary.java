@@ -0,0 +1,19 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+    private Long bookId;
+    private Double averageRating;
+    private Integer totalReviews;
+    private Map<Integer, Integer> ratingHistogram;
+    private List<ReviewDTO> latestReviews;
+}
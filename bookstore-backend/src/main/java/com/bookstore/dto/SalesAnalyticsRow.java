@@ -0,0 +1,18 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesAnalyticsRow {
+    private String key;
+    private Long orderedUnits;
+    private BigDecimal orderedRevenue;
+    private Long paidUnits;
+    private BigDecimal paidRevenue;
+}
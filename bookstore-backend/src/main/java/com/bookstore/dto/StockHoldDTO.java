@@ -0,0 +1,16 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHoldDTO {
+    private List<OrderItemRequest> items;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.bookstore.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHoldRequest {
+    @NotEmpty
+    private List<@Valid OrderItemRequest> items;
+}
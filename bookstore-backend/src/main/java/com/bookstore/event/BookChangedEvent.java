@@ -0,0 +1,25 @@
+package com.bookstore.event;
+
+import com.bookstore.model.Book;
+import lombok.Value;
+
+/**
+ * Published by BookService when a book is created, edited or deleted, for the in-memory
+ * catalog indexes. Listeners receive it after the transaction commits.
+ */
+@Value
+public class BookChangedEvent {
+    Long bookId;
+    String title;
+    String author;
+    String genre;
+    boolean deleted;
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), false);
+    }
+
+    public static BookChangedEvent deleted(Long bookId) {
+        return new BookChangedEvent(bookId, null, null, null, true);
+    }
+}
@@ -0,0 +1,13 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+/**
+ * Published by LowStockMonitor when a genre's reorder threshold is set (or cleared, when
+ * threshold is null). Listeners receive it after the transaction commits.
+ */
+@Value
+public class GenreThresholdChangedEvent {
+    String genre;
+    Integer threshold;
+}
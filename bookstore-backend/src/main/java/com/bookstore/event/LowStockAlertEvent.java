@@ -0,0 +1,9 @@
+package com.bookstore.event;
+
+import com.bookstore.dto.LowStockAlert;
+import lombok.Value;
+
+@Value
+public class LowStockAlertEvent {
+    LowStockAlert alert;
+}
@@ -0,0 +1,20 @@
+package com.bookstore.event;
+
+import com.bookstore.model.OrderItem;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class OrderLineSnapshot {
+    Long bookId;
+    String genre;
+    String author;
+    int quantity;
+    BigDecimal price;
+
+    public static OrderLineSnapshot of(OrderItem item) {
+        return new OrderLineSnapshot(item.getBook().getId(), item.getBook().getGenre(),
+                item.getBook().getAuthor(), item.getQuantity(), item.getPrice());
+    }
+}
@@ -0,0 +1,27 @@
+package com.bookstore.event;
+
+import com.bookstore.model.Order;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Published by OrderService once an order and its stock decrements are saved.
+ * Listeners receive it after the transaction commits.
+ */
+@Value
+public class OrderPlacedEvent {
+    Long orderId;
+    Long userId;
+    LocalDateTime createdAt;
+    Order.PaymentStatus paymentStatus;
+    List<OrderLineSnapshot> lines;
+
+    public static OrderPlacedEvent of(Order order) {
+        return new OrderPlacedEvent(order.getId(), order.getUser().getId(), order.getCreatedAt(),
+                order.getPaymentStatus(),
+                order.getOrderItems().stream().map(OrderLineSnapshot::of).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,10 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+// Order or payment status of an existing order changed
+@Value
+public class OrderUpdatedEvent {
+    Long orderId;
+    Long userId;
+}
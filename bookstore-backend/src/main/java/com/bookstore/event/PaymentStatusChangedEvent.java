@@ -0,0 +1,23 @@
+package com.bookstore.event;
+
+import com.bookstore.model.Order;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Value
+public class PaymentStatusChangedEvent {
+    Long orderId;
+    LocalDateTime createdAt;
+    Order.PaymentStatus previousStatus;
+    Order.PaymentStatus currentStatus;
+    List<OrderLineSnapshot> lines;
+
+    public static PaymentStatusChangedEvent of(Order order, Order.PaymentStatus previousStatus) {
+        return new PaymentStatusChangedEvent(order.getId(), order.getCreatedAt(), previousStatus,
+                order.getPaymentStatus(),
+                order.getOrderItems().stream().map(OrderLineSnapshot::of).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,13 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Value
+public class PriceChange {
+    Long bookId;
+    BigDecimal price;
+    LocalDateTime changedAt;
+}
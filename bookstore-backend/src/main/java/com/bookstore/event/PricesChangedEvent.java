@@ -0,0 +1,14 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Published by PriceHistoryService once new prices are appended to price_history, so the
+ * in-memory history picks them up after the transaction commits.
+ */
+@Value
+public class PricesChangedEvent {
+    List<PriceChange> changes;
+}
@@ -0,0 +1,10 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+// A new review; ReviewsChangedEvent covers every change to a book's reviews, this one only additions
+@Value
+public class ReviewPostedEvent {
+    Long bookId;
+    int rating;
+}
@@ -0,0 +1,13 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+@Value
+public class StockChangedEvent {
+    Long bookId;
+    String title;
+    String genre;
+    Integer reorderThreshold;
+    int previousStock;
+    int currentStock;
+}
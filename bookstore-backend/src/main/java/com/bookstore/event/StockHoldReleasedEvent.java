@@ -0,0 +1,10 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+// holdId identifies which hold of the user was released, so a newer one is not dropped with it
+@Value
+public class StockHoldReleasedEvent {
+    String username;
+    long holdId;
+}
@@ -0,0 +1,9 @@
+package com.bookstore.event;
+
+import lombok.Value;
+
+@Value
+public class UserSecurityChangedEvent {
+    Long userId;
+    int tokenVersion;
+}
@@ -0,0 +1,14 @@
+package com.bookstore.exception;
+
+public class ServiceBusyException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ServiceBusyException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -9,6 +9,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -16,7 +18,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_stock", columnList = "stock"),
+        @Index(name = "idx_books_reorder_threshold", columnList = "reorder_threshold")
+})
+// Saves write only the changed columns, so editing a cover, price or threshold never writes back a stale stock
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -57,9 +64,43 @@ public class Book {
     @Column(name = "image_url")
     private String imageUrl;
 
+    // Overrides the genre/default reorder threshold when set
+    @Column(name = "reorder_threshold")
+    private Integer reorderThreshold;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Rating counters, written only through BookRepository's delta/reconcile updates so an
+    // ordinary book save never overwrites them with stale values
+    @ColumnDefault("0")
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    private int ratingCount;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    private long ratingSum;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_1_count", nullable = false, insertable = false, updatable = false)
+    private int rating1Count;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_2_count", nullable = false, insertable = false, updatable = false)
+    private int rating2Count;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_3_count", nullable = false, insertable = false, updatable = false)
+    private int rating3Count;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_4_count", nullable = false, insertable = false, updatable = false)
+    private int rating4Count;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_5_count", nullable = false, insertable = false, updatable = false)
+    private int rating5Count;
+
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<OrderItem> orderItems = new ArrayList<>();
@@ -68,6 +109,10 @@ public class Book {
     @JsonIgnore
     private List<Review> reviews = new ArrayList<>();
 
+    @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
+    private List<StockHold> stockHolds = new ArrayList<>();
+
     @Transient
     private Double averageRating;
 
@@ -0,0 +1,29 @@
+package com.bookstore.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Decayed popularity inputs of one book as of scoredAt; see PopularityIndex
+@Entity
+@Table(name = "book_popularity")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPopularity {
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Column(name = "sales_score", nullable = false)
+    private double salesScore;
+
+    @Column(name = "review_score", nullable = false)
+    private double reviewScore;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+}
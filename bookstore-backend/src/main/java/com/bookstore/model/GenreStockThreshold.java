@@ -0,0 +1,26 @@
+package com.bookstore.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "genre_stock_thresholds")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenreStockThreshold {
+    @Id
+    private String genre;
+
+    @NotNull
+    @Min(0)
+    @Column(nullable = false)
+    private Integer threshold;
+}
@@ -0,0 +1,33 @@
+package com.bookstore.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One price a book took on at changedAt. Append-only and written with JDBC by PriceHistoryService;
+// book_id carries no foreign key, so the history of a deleted book is kept
+@Entity
+@Table(name = "price_history", indexes = {
+        @Index(name = "idx_price_history_book_changed", columnList = "book_id, changed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -9,11 +9,17 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        @Index(name = "uk_reviews_user_book", columnList = "user_id, book_id", unique = true),
+        @Index(name = "idx_reviews_user_created", columnList = "user_id, createdAt"),
+        @Index(name = "idx_reviews_book_created", columnList = "book_id, createdAt"),
+        @Index(name = "idx_reviews_book_rating_created", columnList = "book_id, rating, createdAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -46,6 +52,11 @@ public class Review {
 
     private LocalDateTime updatedAt;
 
+    // Hidden by moderation: still listed to its author, left out of book listings and rating counters
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private boolean hidden;
+
     @PreUpdate
     public void preUpdate() {
         updatedAt = LocalDateTime.now();
@@ -0,0 +1,37 @@
+package com.bookstore.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Stock set aside for one user's checkout; the quantity is already taken out of books.stock
+@Entity
+@Table(name = "stock_holds", indexes = {
+        @Index(name = "idx_stock_holds_user", columnList = "user_id"),
+        @Index(name = "idx_stock_holds_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", nullable = false)
+    private Book book;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
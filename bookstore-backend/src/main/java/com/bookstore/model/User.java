@@ -52,6 +52,13 @@ public class User {
     private String address;
     private String phone;
 
+    @Column(nullable = false, columnDefinition = "BIT(1) DEFAULT 1")
+    private boolean enabled = true;
+
+    // Bumped on role change or disable; tokens carrying an older version are rejected
+    @Column(name = "token_version", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private int tokenVersion;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -1,15 +1,21 @@
 package com.bookstore.repository;
 
 import com.bookstore.model.Book;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     Optional<Book> findByIsbn(String isbn);
 
@@ -29,4 +35,96 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     // In-stock books (NO pagination)
     @Query("SELECT b FROM Book b WHERE b.stock > 0")
     List<Book> findInStockBooks();
+
+    // Just the searchable text, for building the in-memory catalog indexes
+    @Query("SELECT b.id AS id, b.title AS title, b.author AS author, b.genre AS genre FROM Book b")
+    List<CatalogText> findAllCatalogText();
+
+    // Current price and stock only, for pushing live updates to open product pages
+    @Query("SELECT b.id AS id, b.price AS price, b.stock AS stock FROM Book b WHERE b.id IN :ids")
+    List<Offer> findOffersByIdIn(Collection<Long> ids);
+
+    // Row locks on the books whose stock is about to move, taken in one statement in ascending id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<Book> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Range scan on idx_books_stock
+    List<Book> findByStockLessThanEqualOrderByStockAsc(Integer stock);
+
+    // Books that follow their genre's threshold
+    List<Book> findByGenreAndReorderThresholdIsNull(String genre);
+
+    @Query("SELECT MAX(b.reorderThreshold) FROM Book b")
+    Integer findMaxReorderThreshold();
+
+    // Applies one review change to the rating counters; added/removed are star values, 0 for none
+    default void applyRatingDelta(Long bookId, int added, int removed) {
+        int[] perStar = new int[6];
+        perStar[added]++;
+        perStar[removed]--;
+        applyRatingDelta(bookId, perStar);
+    }
+
+    // perStar[s] is the change in the number of s-star reviews; index 0 is ignored
+    default void applyRatingDelta(Long bookId, int[] perStar) {
+        int count = 0;
+        long sum = 0;
+        for (int star = 1; star <= 5; star++) {
+            count += perStar[star];
+            sum += (long) star * perStar[star];
+        }
+        applyRatingDelta(bookId, count, sum, perStar[1], perStar[2], perStar[3], perStar[4], perStar[5]);
+    }
+
+    @Modifying
+    @Query("UPDATE Book b SET b.ratingCount = b.ratingCount + :count, b.ratingSum = b.ratingSum + :sum, " +
+           "b.rating1Count = b.rating1Count + :d1, b.rating2Count = b.rating2Count + :d2, " +
+           "b.rating3Count = b.rating3Count + :d3, b.rating4Count = b.rating4Count + :d4, " +
+           "b.rating5Count = b.rating5Count + :d5 WHERE b.id = :bookId")
+    int applyRatingDelta(@Param("bookId") Long bookId, @Param("count") int count, @Param("sum") long sum,
+                         @Param("d1") int d1, @Param("d2") int d2, @Param("d3") int d3,
+                         @Param("d4") int d4, @Param("d5") int d5);
+
+    // Recomputes the rating counters of one book from its visible reviews
+    @Modifying
+    @Query("UPDATE Book b SET " +
+           "b.ratingCount = (SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false), " +
+           "b.ratingSum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false), " +
+           "b.rating1Count = (SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false AND r.rating = 1), " +
+           "b.rating2Count = (SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false AND r.rating = 2), " +
+           "b.rating3Count = (SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false AND r.rating = 3), " +
+           "b.rating4Count = (SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false AND r.rating = 4), " +
+           "b.rating5Count = (SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId AND r.hidden = false AND r.rating = 5) " +
+           "WHERE b.id = :bookId")
+    int recomputeRatingStats(@Param("bookId") Long bookId);
+
+    @Query("SELECT b.id AS id, b.ratingCount AS ratingCount, b.ratingSum AS ratingSum, " +
+           "b.rating1Count AS rating1Count, b.rating2Count AS rating2Count, b.rating3Count AS rating3Count, " +
+           "b.rating4Count AS rating4Count, b.rating5Count AS rating5Count FROM Book b")
+    List<RatingStats> findAllRatingStats();
+
+    interface CatalogText {
+        Long getId();
+        String getTitle();
+        String getAuthor();
+        String getGenre();
+    }
+
+    interface Offer {
+        Long getId();
+        BigDecimal getPrice();
+        Integer getStock();
+    }
+
+    interface RatingStats {
+        Long getId();
+        int getRatingCount();
+        long getRatingSum();
+        int getRating1Count();
+        int getRating2Count();
+        int getRating3Count();
+        int getRating4Count();
+        int getRating5Count();
+    }
 }
@@ -0,0 +1,11 @@
+package com.bookstore.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface BookRepositoryCustom {
+    // Only the given Book attributes, keyed by attribute name; null filters are not applied
+    List<Map<String, Object>> findBookColumns(Collection<String> attributes, String search, String genre,
+                                              Collection<Long> ids);
+}
@@ -0,0 +1,68 @@
+package com.bookstore.repository;
+
+import com.bookstore.model.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findBookColumns(Collection<String> attributes, String search, String genre,
+                                                     Collection<Long> ids) {
+        if (ids != null && ids.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+
+        List<String> columns = new ArrayList<>(new LinkedHashSet<>(attributes));
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String column : columns) {
+            selections.add(book.get(column).alias(column));
+        }
+        query.multiselect(selections);
+
+        // Same matching as BookRepository.searchBooks
+        List<Predicate> where = new ArrayList<>();
+        if (search != null) {
+            String pattern = "%" + search.toLowerCase() + "%";
+            where.add(cb.or(cb.like(cb.lower(book.get("title")), pattern),
+                    cb.like(cb.lower(book.get("author")), pattern)));
+        }
+        if (genre != null) {
+            where.add(cb.equal(book.get("genre"), genre));
+        }
+        if (ids != null) {
+            where.add(book.get("id").in(ids));
+        }
+        query.where(where.toArray(new Predicate[0]));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setHint(HINT_READ_ONLY, true).getResultList()) {
+            Map<String, Object> row = new HashMap<>();
+            for (String column : columns) {
+                row.put(column, tuple.get(column));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
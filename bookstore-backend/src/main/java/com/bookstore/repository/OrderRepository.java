@@ -2,13 +2,21 @@ package com.bookstore.repository;
 
 import com.bookstore.model.Order;
 import com.bookstore.model.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUser(User user);
@@ -19,4 +27,101 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     @Query("SELECT SUM(o.totalPrice) FROM Order o WHERE o.paymentStatus = 'PAID' AND o.createdAt >= :startDate")
     Double getTotalRevenueAfterDate(LocalDateTime startDate);
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findEarliestOrderDate();
+
+    // Flat order_items x books rows of orders up to upToOrderId for the sales cube, read in keyset chunks of order_items.id
+    @Query("SELECT oi.id AS id, o.id AS orderId, b.genre AS genre, b.author AS author, o.createdAt AS createdAt, " +
+           "o.paymentStatus AS paymentStatus, oi.quantity AS quantity, oi.price AS price " +
+           "FROM Order o JOIN o.orderItems oi JOIN oi.book b " +
+           "WHERE oi.id > :afterId AND o.id <= :upToOrderId ORDER BY oi.id")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<SalesLine> findSalesLinesAfter(Long afterId, Long upToOrderId, Pageable pageable);
+
+    interface SalesLine {
+        Long getId();
+        Long getOrderId();
+        String getGenre();
+        String getAuthor();
+        LocalDateTime getCreatedAt();
+        Order.PaymentStatus getPaymentStatus();
+        Integer getQuantity();
+        BigDecimal getPrice();
+    }
+
+    @Query("SELECT MAX(o.id) FROM Order o")
+    Long findMaxOrderId();
+
+    // Distinct (order, book) pairs of the orders with ids in (afterOrderId, upToOrderId]
+    @Query("SELECT DISTINCT oi.order.id AS orderId, oi.book.id AS bookId FROM OrderItem oi " +
+           "WHERE oi.order.id > :afterOrderId AND oi.order.id <= :upToOrderId ORDER BY oi.order.id")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<OrderBook> findOrderBooksBetween(Long afterOrderId, Long upToOrderId);
+
+    interface OrderBook {
+        Long getOrderId();
+        Long getBookId();
+    }
+
+    @Query("SELECT oi.book.id AS bookId, SUM(oi.quantity) AS units FROM OrderItem oi GROUP BY oi.book.id")
+    List<BookUnits> sumUnitsByBook();
+
+    interface BookUnits {
+        Long getBookId();
+        long getUnits();
+    }
+
+    // Units sold per order line since a date, for rebuilding decayed popularity scores
+    @Query("SELECT oi.book.id AS bookId, o.createdAt AS createdAt, oi.quantity AS quantity " +
+           "FROM OrderItem oi JOIN oi.order o WHERE o.createdAt >= :since")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<BookSale> findBookSalesSince(LocalDateTime since);
+
+    interface BookSale {
+        Long getBookId();
+        LocalDateTime getCreatedAt();
+        Integer getQuantity();
+    }
+
+    @Query("SELECT COUNT(o) AS orderCount, " +
+           "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN o.totalPrice ELSE 0 END), 0) AS lifetimeSpend, " +
+           "MAX(o.createdAt) AS lastOrderAt FROM Order o WHERE o.user.id = :userId")
+    OrderTotals findTotalsByUserId(@Param("userId") Long userId);
+
+    interface OrderTotals {
+        long getOrderCount();
+        BigDecimal getLifetimeSpend();
+        LocalDateTime getLastOrderAt();
+    }
+
+    // Keyset page of one user's orders, newest first; range scan on idx_orders_user_created
+    @Query("SELECT o.id AS id, o.createdAt AS createdAt, o.totalPrice AS totalPrice, o.status AS status, " +
+           "o.paymentStatus AS paymentStatus FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderHeader> findUserOrderPage(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id, Pageable pageable);
+
+    interface OrderHeader {
+        Long getId();
+        LocalDateTime getCreatedAt();
+        BigDecimal getTotalPrice();
+        Order.OrderStatus getStatus();
+        Order.PaymentStatus getPaymentStatus();
+    }
+
+    // Items of several orders with their book titles, in one query
+    @Query("SELECT oi.order.id AS orderId, b.id AS bookId, b.title AS title, oi.quantity AS quantity, " +
+           "oi.price AS price FROM OrderItem oi JOIN oi.book b WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<ItemLine> findItemLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    interface ItemLine {
+        Long getOrderId();
+        Long getBookId();
+        String getTitle();
+        Integer getQuantity();
+        BigDecimal getPrice();
+    }
 }
@@ -1,26 +1,113 @@
 package com.bookstore.repository;
 
+import com.bookstore.dto.ReviewDTO;
 import com.bookstore.model.Book;
 import com.bookstore.model.Review;
 import com.bookstore.model.User;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByBook(Book book);
-    List<Review> findByBookOrderByCreatedAtDesc(Book book);
     Optional<Review> findByUserAndBook(User user, Book book);
-    boolean existsByUserAndBook(User user, Book book);
-    
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.book = :book")
-    Double getAverageRatingByBook(@Param("book") Book book);
-    
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.book = :book")
-    Integer getTotalReviewsByBook(@Param("book") Book book);
+
+    // Keyset pages with the author's username in the same query; cursor values are exclusive
+    @Query("SELECT new com.bookstore.dto.ReviewDTO(r.id, u.id, u.username, r.book.id, r.rating, r.comment, r.createdAt, r.updatedAt, r.hidden) " +
+           "FROM Review r JOIN r.user u WHERE r.book.id = :bookId AND r.hidden = false " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReviewDTO> findNewestPage(@Param("bookId") Long bookId, @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT new com.bookstore.dto.ReviewDTO(r.id, u.id, u.username, r.book.id, r.rating, r.comment, r.createdAt, r.updatedAt, r.hidden) " +
+           "FROM Review r JOIN r.user u WHERE u.id = :userId " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<ReviewDTO> findUserPage(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT new com.bookstore.dto.ReviewDTO(r.id, u.id, u.username, r.book.id, r.rating, r.comment, r.createdAt, r.updatedAt, r.hidden) " +
+           "FROM Review r JOIN r.user u WHERE r.book.id = :bookId AND r.hidden = false " +
+           "AND (r.rating < :rating OR (r.rating = :rating AND " +
+           "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)))) " +
+           "ORDER BY r.rating DESC, r.createdAt DESC, r.id DESC")
+    List<ReviewDTO> findHighestRatedPage(@Param("bookId") Long bookId, @Param("rating") Integer rating,
+                                         @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                         Pageable pageable);
+
+    @Query("SELECT new com.bookstore.dto.ReviewDTO(r.id, u.id, u.username, r.book.id, r.rating, r.comment, r.createdAt, r.updatedAt, r.hidden) " +
+           "FROM Review r JOIN r.user u WHERE r.book.id = :bookId AND r.hidden = false " +
+           "AND (r.rating > :rating OR (r.rating = :rating AND " +
+           "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)))) " +
+           "ORDER BY r.rating ASC, r.createdAt DESC, r.id DESC")
+    List<ReviewDTO> findLowestRatedPage(@Param("bookId") Long bookId, @Param("rating") Integer rating,
+                                        @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                        Pageable pageable);
+
+    // Per-book, per-star counts used to verify the counters kept on Book
+    @Query("SELECT r.book.id AS bookId, r.rating AS rating, COUNT(r) AS count FROM Review r " +
+           "WHERE r.hidden = false GROUP BY r.book.id, r.rating")
+    List<RatingCount> countByBookAndRating();
+
+    interface RatingCount {
+        Long getBookId();
+        Integer getRating();
+        long getCount();
+    }
+
+    @Query("SELECT r.book.id AS bookId, r.createdAt AS createdAt, r.rating AS rating FROM Review r " +
+           "WHERE r.hidden = false AND r.createdAt >= :since")
+    List<BookRating> findRatingsSince(@Param("since") LocalDateTime since);
+
+    interface BookRating {
+        Long getBookId();
+        LocalDateTime getCreatedAt();
+        Integer getRating();
+    }
+
+    // Bulk moderation: matching ids are scanned in primary-key order outside any write transaction;
+    // pattern has \, % and _ escaped with a backslash
+    String MODERATION_FILTER = "(:userId IS NULL OR r.user.id = :userId) AND (:bookId IS NULL OR r.book.id = :bookId) " +
+            "AND (:from IS NULL OR r.createdAt >= :from) AND (:to IS NULL OR r.createdAt < :to) " +
+            "AND (:pattern IS NULL OR LOWER(r.comment) LIKE :pattern ESCAPE '\\') AND (:hidden IS NULL OR r.hidden = :hidden)";
+
+    @Query("SELECT r.id FROM Review r WHERE r.id > :afterId AND " + MODERATION_FILTER + " ORDER BY r.id")
+    List<Long> findIdsForModeration(@Param("afterId") Long afterId, @Param("userId") Long userId,
+                                    @Param("bookId") Long bookId, @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to, @Param("pattern") String pattern,
+                                    @Param("hidden") Boolean hidden, Pageable pageable);
+
+    @Query("SELECT COUNT(r) FROM Review r WHERE " + MODERATION_FILTER)
+    long countForModeration(@Param("userId") Long userId, @Param("bookId") Long bookId,
+                            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                            @Param("pattern") String pattern, @Param("hidden") Boolean hidden);
+
+    // Row locks on one chunk only, so concurrent edits of these reviews wait instead of racing the counters
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id IN :ids")
+    List<Review> lockAllByIdIn(@Param("ids") List<Long> ids);
+
+    // The same row lock for a single edit or delete, so it cannot interleave with a moderation chunk
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> lockById(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM Review r WHERE r.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Review r SET r.hidden = :hidden WHERE r.id IN :ids")
+    int setHiddenByIdIn(@Param("ids") List<Long> ids, @Param("hidden") boolean hidden);
 }
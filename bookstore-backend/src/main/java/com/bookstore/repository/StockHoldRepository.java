@@ -0,0 +1,38 @@
+package com.bookstore.repository;
+
+import com.bookstore.model.StockHold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.user.id = :userId")
+    List<StockHold> lockByUserId(@Param("userId") Long userId);
+
+    // Only rows still expired under lock; a hold renewed in the meantime is left alone
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.user.username IN :usernames AND h.expiresAt <= :now")
+    List<StockHold> lockExpiredByUsernameIn(@Param("usernames") Collection<String> usernames,
+                                            @Param("now") LocalDateTime now);
+
+    @Query("SELECT h.id AS id, h.user.username AS username, h.book.id AS bookId, h.quantity AS quantity, " +
+           "h.expiresAt AS expiresAt FROM StockHold h")
+    List<HoldLine> findAllLines();
+
+    interface HoldLine {
+        Long getId();
+        String getUsername();
+        Long getBookId();
+        Integer getQuantity();
+        LocalDateTime getExpiresAt();
+    }
+}
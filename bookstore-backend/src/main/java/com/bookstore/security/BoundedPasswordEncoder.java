@@ -0,0 +1,117 @@
+package com.bookstore.security;
+
+import com.bookstore.exception.ServiceBusyException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs password hashing on a small dedicated pool so a login storm cannot pin every request
+ * thread on BCrypt. When the queue is full the caller gets a ServiceBusyException (503) at once.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long timeoutMs) {
+        this.delegate = delegate;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = completed.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        metrics.put("completed", count);
+        metrics.put("rejected", rejected.sum());
+        metrics.put("avgHashMillis", count == 0 ? 0.0 : totalHashNanos.sum() / (double) count / 1_000_000);
+        metrics.put("maxHashMillis", maxHashNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    completed.increment();
+                    totalHashNanos.add(elapsed);
+                    maxHashNanos.accumulateAndGet(elapsed, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Authentication service is busy, please retry", 1);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceBusyException("Authentication service is busy, please retry", 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Authentication service is busy, please retry", 1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
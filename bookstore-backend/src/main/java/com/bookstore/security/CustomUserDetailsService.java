@@ -5,13 +5,14 @@ import com.bookstore.repository.UserRepository;
 import com.bookstore.service.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     private UserRepository userRepository;
 
@@ -23,4 +24,13 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return UserDetailsImpl.build(user);
     }
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        return UserDetailsImpl.build(userRepository.save(user));
+    }
 }
@@ -1,51 +1,111 @@
 package com.bookstore.security;
 
+import com.bookstore.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.util.function.SingletonSupplier;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    // Public endpoints never look at the token, even when the client attaches one
+    public static final RequestMatcher PUBLIC_ENDPOINTS = new OrRequestMatcher(
+            new AntPathRequestMatcher("/api/books/**", "GET"),
+            new AntPathRequestMatcher("/api/register"),
+            new AntPathRequestMatcher("/api/login"),
+            new AntPathRequestMatcher("/api/refresh"),
+            new AntPathRequestMatcher("/api/logout"),
+            new AntPathRequestMatcher("/swagger-ui/**"),
+            new AntPathRequestMatcher("/swagger-ui.html"),
+            new AntPathRequestMatcher("/v3/api-docs/**"),
+            new AntPathRequestMatcher("/api-docs/**")
+    );
+
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_ENDPOINTS.matches(request);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        String jwt = getJwtFromRequest(request);
+
+        if (StringUtils.hasText(jwt)) {
+            // Defer verification until something reads the security context
+            SecurityContextHolderStrategy strategy = SecurityContextHolder.getContextHolderStrategy();
+            strategy.setDeferredContext(SingletonSupplier.of(() -> {
+                SecurityContext context = strategy.createEmptyContext();
+                context.setAuthentication(authenticate(jwt, request));
+                return context;
+            }));
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String jwt, HttpServletRequest request) {
         try {
-            String jwt = getJwtFromRequest(request);
+            Claims claims = jwtVerifier.verify(jwt);
+            if (claims == null || tokenRevocationList.isRevoked(claims.getId())) {
+                return null;
+            }
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetailsImpl principal = tokenProvider.getPrincipalFromClaims(claims);
+            UserDetails userDetails = null;
+            if (principal == null) {
+                // Legacy token without embedded claims
+                userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            } else if (tokenVersionRegistry.isCurrent(principal.getId(), principal.getTokenVersion())) {
+                userDetails = principal;
+            }
+
+            if (userDetails != null && userDetails.isEnabled()) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                return authentication;
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
-
-        filterChain.doFilter(request, response);
+        return null;
     }
 
-    private String getJwtFromRequest(HttpServletRequest request) {
+    static String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
             return bearerToken.substring(7);
@@ -1,59 +1,70 @@
 package com.bookstore.security;
 
+import com.bookstore.service.UserDetailsImpl;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    private SecretKey signingKey;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
     }
 
     public String generateToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        return generateToken((UserDetailsImpl) authentication.getPrincipal());
+    }
+
+    public String generateToken(UserDetailsImpl userPrincipal) {
+        String role = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .findFirst()
+                .orElse(null);
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userPrincipal.getUsername())
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLE, role)
+                .claim(CLAIM_TOKEN_VERSION, userPrincipal.getTokenVersion())
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
-    }
-
-    public boolean validateToken(String authToken) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(authToken);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+    // Null for tokens issued before userId/role claims were embedded
+    public UserDetailsImpl getPrincipalFromClaims(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        if (userId == null || role == null || tokenVersion == null) {
+            return null;
         }
+        return UserDetailsImpl.fromClaims(userId, claims.getSubject(), role, tokenVersion);
     }
 }
@@ -0,0 +1,93 @@
+package com.bookstore.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies a JWT and returns its claims in a single parse. The signing key and parser are
+ * built once; recently verified tokens are cached by SHA-256 of the token until their exp.
+ */
+@Component
+public class JwtVerifier {
+    @Value("${jwt.secret}")
+    private String jwtSecret;
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private int cacheSize;
+
+    private JwtParser parser;
+
+    private final Map<ByteBuffer, VerifiedToken> cache = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+    }
+
+    // Null when the token is malformed, tampered with or expired
+    public Claims verify(String token) {
+        long now = System.currentTimeMillis();
+        ByteBuffer key = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+
+        VerifiedToken cached = cache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            cache.remove(key);
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+
+        if (claims.getExpiration() != null) {
+            if (cache.size() >= cacheSize) {
+                evict(now);
+            }
+            cache.put(key, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+
+    private void evict(long now) {
+        cache.values().removeIf(entry -> entry.expiresAt <= now);
+        // Still full of live tokens: drop an arbitrary tenth rather than grow
+        Iterator<ByteBuffer> it = cache.keySet().iterator();
+        int toDrop = cache.size() - cacheSize + cacheSize / 10;
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.bookstore.security;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-route request rate limits. The first matching policy applies; requests with a validly
+ * signed token are keyed by its subject, everything else by client IP. The token is only
+ * verified (a cache hit after the first request), so the deferred authentication stays deferred.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${app.rate-limit.auth.capacity:10}")
+    private int authCapacity;
+
+    @Value("${app.rate-limit.auth.refill-per-second:0.2}")
+    private double authRefillPerSecond;
+
+    @Value("${app.rate-limit.search.capacity:20}")
+    private int searchCapacity;
+
+    @Value("${app.rate-limit.search.refill-per-second:2}")
+    private double searchRefillPerSecond;
+
+    @Value("${app.rate-limit.api.capacity:200}")
+    private int apiCapacity;
+
+    @Value("${app.rate-limit.api.refill-per-second:50}")
+    private double apiRefillPerSecond;
+
+    private List<Policy> policies;
+
+    @PostConstruct
+    public void init() {
+        RequestMatcher authEndpoints = new OrRequestMatcher(
+                new AntPathRequestMatcher("/api/login", "POST"),
+                new AntPathRequestMatcher("/api/register", "POST"));
+        RequestMatcher bookSearch = request -> "GET".equals(request.getMethod())
+                && "/api/books".equals(request.getServletPath())
+                && request.getParameter("search") != null;
+
+        policies = List.of(
+                new Policy("auth", authEndpoints, false,
+                        new TokenBucketLimiter(authCapacity, authRefillPerSecond, maxKeys)),
+                new Policy("search", bookSearch, true,
+                        new TokenBucketLimiter(searchCapacity, searchRefillPerSecond, maxKeys)),
+                new Policy("api", new AntPathRequestMatcher("/api/**"), true,
+                        new TokenBucketLimiter(apiCapacity, apiRefillPerSecond, maxKeys)));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        for (Policy policy : policies) {
+            if (policy.matcher().matches(request)) {
+                long waitNanos = policy.limiter().tryAcquire(clientKey(request, policy.perUser()));
+                if (waitNanos > 0) {
+                    reject(response, waitNanos);
+                    return;
+                }
+                break;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    public Map<String, Integer> getTrackedKeys() {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        policies.forEach(policy -> keys.put(policy.name(), policy.limiter().size()));
+        return keys;
+    }
+
+    private String clientKey(HttpServletRequest request, boolean perUser) {
+        // Public endpoints never look at the token, so neither does their limit
+        if (perUser && !JwtAuthenticationFilter.PUBLIC_ENDPOINTS.matches(request)) {
+            String jwt = JwtAuthenticationFilter.getJwtFromRequest(request);
+            Claims claims = jwt != null ? jwtVerifier.verify(jwt) : null;
+            if (claims != null && claims.getSubject() != null) {
+                return "u:" + claims.getSubject();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests\"}");
+    }
+
+    private record Policy(String name, RequestMatcher matcher, boolean perUser, TokenBucketLimiter limiter) {
+    }
+}
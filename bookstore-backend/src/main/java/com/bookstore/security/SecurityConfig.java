@@ -2,8 +2,11 @@ package com.bookstore.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -12,19 +15,23 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\$2[abxy]?\\$(\\d{2})\\$");
 
     @Autowired
     private CustomUserDetailsService userDetailsService;
@@ -32,12 +39,36 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Value("${app.cors.allowed-origins}")
     private String allowedOrigins;
 
+    @Value("${app.auth.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.auth.hash-threads:2}")
+    private int hashThreads;
+
+    @Value("${app.auth.hash-queue-capacity:64}")
+    private int hashQueueCapacity;
+
+    @Value("${app.auth.hash-timeout-ms:5000}")
+    private long hashTimeoutMs;
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        // BCrypt on its own only upgrades weaker hashes; any change of the strength re-hashes
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength) {
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                Matcher cost = BCRYPT_COST.matcher(encodedPassword != null ? encodedPassword : "");
+                return cost.lookingAt() ? Integer.parseInt(cost.group(1)) != bcryptStrength
+                        : super.upgradeEncoding(encodedPassword);
+            }
+        };
+        return new BoundedPasswordEncoder(bcrypt, hashThreads, hashQueueCapacity, hashTimeoutMs);
     }
 
     @Bean
@@ -45,6 +76,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes with the configured strength on successful login when the stored hash has another cost
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -53,16 +86,54 @@ public class SecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
+    // Keeps Boot from also registering these filters as plain servlet filters outside the security chains
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration() {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(jwtAuthenticationFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration() {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    // Anonymous catalog reads: no JWT filter, no session, request cache or anonymous principal
+    @Bean
+    @Order(1)
+    public SecurityFilterChain catalogFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher(new AntPathRequestMatcher("/api/books/**", "GET"))
+                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache(cache -> cache.disable())
+                .anonymous(anonymous -> anonymous.disable())
+                .logout(logout -> logout.disable())
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class);
+
+        return http.build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // 401 for a missing, expired or revoked token so clients know to refresh
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(
                                 "/api/register",
                                 "/api/login",
+                                "/api/refresh",
+                                "/api/logout",
                                 "/api/books/**",
                                 "/swagger-ui/**",
                                 "/swagger-ui.html",
@@ -75,7 +146,8 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,96 @@
+package com.bookstore.security;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets, one AtomicLong per key, using the GCRA formulation: each key stores
+ * its "theoretical arrival time" and a request is admitted with a single CAS.
+ * Keys are spread over striped maps, each capped at maxKeys / STRIPES. A key whose bucket has
+ * refilled completely is indistinguishable from a new one, so full stripes drop those first.
+ */
+public class TokenBucketLimiter {
+    private static final int STRIPES = 64;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeysPerStripe;
+    private final List<ConcurrentHashMap<String, AtomicLong>> stripes;
+    private final AtomicBoolean[] sweeping;
+
+    public TokenBucketLimiter(int capacity, double refillPerSecond, int maxKeys) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.stripes = new ArrayList<>(STRIPES);
+        this.sweeping = new AtomicBoolean[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+            sweeping[i] = new AtomicBoolean();
+        }
+    }
+
+    // 0 when admitted, otherwise nanoseconds until the next token is available
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        int stripeIndex = stripeOf(key);
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes.get(stripeIndex);
+
+        AtomicLong arrival = stripe.get(key);
+        if (arrival == null) {
+            if (stripe.size() >= maxKeysPerStripe) {
+                evict(stripeIndex, now);
+            }
+            arrival = stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = arrival.get();
+            long start = current - now > 0 ? current : now;
+            long wait = start - burstToleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private void evict(int stripeIndex, long now) {
+        if (!sweeping[stripeIndex].compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ConcurrentHashMap<String, AtomicLong> stripe = stripes.get(stripeIndex);
+            stripe.values().removeIf(arrival -> arrival.get() - now <= 0);
+            // Still full of active keys: drop an arbitrary tenth rather than grow
+            Iterator<AtomicLong> it = stripe.values().iterator();
+            int toDrop = stripe.size() - maxKeysPerStripe + maxKeysPerStripe / 10;
+            while (toDrop-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            sweeping[stripeIndex].set(false);
+        }
+    }
+
+    private static int stripeOf(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % STRIPES;
+    }
+}
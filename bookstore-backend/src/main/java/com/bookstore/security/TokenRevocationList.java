@@ -0,0 +1,130 @@
+package com.bookstore.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Revoked access-token ids (jti), checked on every authenticated request without I/O.
+ * A Bloom filter answers the common "not revoked" case; hits are confirmed against an exact map
+ * of jti to expiry. Filters rotate every access-token lifetime and are kept for two generations,
+ * so an id ages out once the token it revokes can no longer be valid anyway.
+ */
+@Component
+public class TokenRevocationList {
+    private static final int HASHES = 7;
+
+    @Value("${jwt.expiration}")
+    private long accessTokenLifetimeMs;
+
+    @Value("${jwt.revocation.expected-per-window:10000}")
+    private int expectedPerWindow;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile long rotateAt;
+
+    @PostConstruct
+    public void init() {
+        current = new BloomFilter(expectedPerWindow * 10);
+        previous = new BloomFilter(expectedPerWindow * 10);
+        rotateAt = System.currentTimeMillis() + accessTokenLifetimeMs;
+    }
+
+    public void revoke(String tokenId, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        if (tokenId == null || expiresAtMillis <= now) {
+            return;
+        }
+        rotateIfDue(now);
+        revoked.put(tokenId, expiresAtMillis);
+        current.add(tokenId);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        rotateIfDue(now);
+        if (!current.mightContain(tokenId) && !previous.mightContain(tokenId)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt > now;
+    }
+
+    private void rotateIfDue(long now) {
+        if (now < rotateAt) {
+            return;
+        }
+        synchronized (this) {
+            if (now < rotateAt) {
+                return;
+            }
+            previous = current;
+            current = new BloomFilter(expectedPerWindow * 10);
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            rotateAt = now + accessTokenLifetimeMs;
+        }
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final int size;
+
+        BloomFilter(int bitCount) {
+            this.size = Math.max(64, bitCount);
+            this.bits = new AtomicLongArray((size + 63) / 64);
+        }
+
+        void add(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % size;
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long old;
+                do {
+                    old = bits.get(word);
+                } while ((old & mask) == 0 && !bits.compareAndSet(word, old, old | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash64(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % size;
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a followed by a murmur3 finalizer
+        private static long hash64(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
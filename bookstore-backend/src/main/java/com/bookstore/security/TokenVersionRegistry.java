@@ -0,0 +1,75 @@
+package com.bookstore.security;
+
+import com.bookstore.event.UserSecurityChangedEvent;
+import com.bookstore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of users.token_version, read by the JWT filter instead of loading the user.
+ * A user's entry is fetched on first use and raised to the new version once a role change or
+ * disable commits. Versions only ever move forward: a load that read the old value before the
+ * commit cannot overwrite the newer one. Entries expire after the TTL and the map is bounded.
+ */
+@Component
+public class TokenVersionRegistry {
+    private static final int UNKNOWN_USER = -1;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.token-version-cache-size:100000}")
+    private int cacheSize;
+
+    @Value("${jwt.token-version-ttl-ms:300000}")
+    private long ttlMs;
+
+    private final Map<Long, Entry> versions = new ConcurrentHashMap<>();
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        long now = System.currentTimeMillis();
+        Entry entry = versions.get(userId);
+        if (entry == null || entry.expiresAt <= now) {
+            int loaded = userRepository.findTokenVersionById(userId).orElse(UNKNOWN_USER);
+            if (versions.size() >= cacheSize) {
+                evict(now);
+            }
+            entry = versions.merge(userId, new Entry(loaded, now + ttlMs), TokenVersionRegistry::newer);
+        }
+        return entry.version != UNKNOWN_USER && entry.version == tokenVersion;
+    }
+
+    @TransactionalEventListener
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        versions.merge(event.getUserId(), new Entry(event.getTokenVersion(), System.currentTimeMillis() + ttlMs),
+                TokenVersionRegistry::newer);
+    }
+
+    // The higher version wins; an expired entry gives way to a fresh load of the same version
+    private static Entry newer(Entry current, Entry candidate) {
+        if (candidate.version > current.version
+                || (candidate.version == current.version && candidate.expiresAt > current.expiresAt)) {
+            return candidate;
+        }
+        return current;
+    }
+
+    private void evict(long now) {
+        versions.values().removeIf(entry -> entry.expiresAt <= now);
+        Iterator<Long> it = versions.keySet().iterator();
+        int toDrop = versions.size() - cacheSize + cacheSize / 10;
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record Entry(int version, long expiresAt) {
+    }
+}
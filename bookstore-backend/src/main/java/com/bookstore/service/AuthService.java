@@ -6,6 +6,9 @@ import com.bookstore.dto.RegisterRequest;
 import com.bookstore.model.User;
 import com.bookstore.repository.UserRepository;
 import com.bookstore.security.JwtTokenProvider;
+import com.bookstore.security.JwtVerifier;
+import com.bookstore.security.TokenRevocationList;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -13,6 +16,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -30,6 +34,17 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    // No surrounding transaction: BCrypt must not hold one of the pool's few connections
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public JwtResponse register(RegisterRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new RuntimeException("Username is already taken!");
@@ -50,22 +65,43 @@ public class AuthService {
 
         user = userRepository.save(user);
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
+        // The password was just hashed above; no need to verify it again through the AuthenticationManager
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities());
 
         String jwt = tokenProvider.generateToken(authentication);
         return new JwtResponse(jwt, "Bearer", user.getId(), user.getUsername(),
-                user.getEmail(), user.getRole().name());
+                user.getEmail(), user.getRole().name(), refreshTokenService.issue(user.getId()));
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public JwtResponse login(LoginRequest request) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = tokenProvider.generateToken(authentication);
-        User user = userRepository.findByUsername(request.getUsername()).orElseThrow();
-        return new JwtResponse(jwt, "Bearer", user.getId(), user.getUsername(),
-                user.getEmail(), user.getRole().name());
+        UserDetailsImpl principal = (UserDetailsImpl) authentication.getPrincipal();
+        String role = principal.getAuthorities().iterator().next().getAuthority().substring("ROLE_".length());
+        return new JwtResponse(jwt, "Bearer", principal.getId(), principal.getUsername(),
+                principal.getEmail(), role, refreshTokenService.issue(principal.getId()));
+    }
+
+    public JwtResponse refresh(String refreshToken) {
+        return refreshTokenService.refresh(refreshToken);
+    }
+
+    // Revokes the refresh token and, when still valid, the access token presented with it
+    public void logout(String refreshToken, String accessToken) {
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+        if (accessToken != null) {
+            Claims claims = jwtVerifier.verify(accessToken);
+            if (claims != null) {
+                tokenRevocationList.revoke(claims.getId(), claims.getExpiration().getTime());
+            }
+        }
     }
-}
\ No newline at end of file
+}
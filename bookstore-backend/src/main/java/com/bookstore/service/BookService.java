@@ -1,25 +1,76 @@
 package com.bookstore.service;
 
 import com.bookstore.dto.BookDTO;
+import com.bookstore.dto.BookPriceUpdate;
+import com.bookstore.dto.BookQuote;
+import com.bookstore.dto.BookQuoteLine;
+import com.bookstore.dto.FieldSelection;
+import com.bookstore.dto.OrderItemRequest;
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.event.ReviewsChangedEvent;
+import com.bookstore.event.StockChangedEvent;
 import com.bookstore.model.Book;
 import com.bookstore.repository.BookRepository;
-import com.bookstore.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class BookService {
+    public static final String COVER_URL_PREFIX = "/api/books/covers/";
+
+    // Book attributes read for each BookDTO field
+    private static final Map<String, List<String>> BOOK_COLUMNS = Map.ofEntries(
+            Map.entry("id", List.of("id")),
+            Map.entry("title", List.of("title")),
+            Map.entry("author", List.of("author")),
+            Map.entry("genre", List.of("genre")),
+            Map.entry("isbn", List.of("isbn")),
+            Map.entry("price", List.of("price")),
+            Map.entry("description", List.of("description")),
+            Map.entry("stock", List.of("stock")),
+            Map.entry("imageUrl", List.of("imageUrl")),
+            Map.entry("createdAt", List.of("createdAt")),
+            Map.entry("averageRating", List.of("ratingCount", "ratingSum")),
+            Map.entry("totalReviews", List.of("ratingCount")),
+            Map.entry("ratingHistogram", List.of("rating1Count", "rating2Count", "rating3Count",
+                    "rating4Count", "rating5Count")));
 
     @Autowired
     private BookRepository bookRepository;
 
     @Autowired
-    private ReviewRepository reviewRepository;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogFuzzyIndex catalogFuzzyIndex;
+
+    @Autowired
+    private CoPurchaseIndex coPurchaseIndex;
+
+    @Autowired
+    private PopularityIndex popularityIndex;
+
+    @Autowired
+    private CoverStorageService coverStorageService;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
 
     // ==========================
     //   NO PAGINATION METHODS
@@ -39,6 +90,74 @@ public class BookService {
                 .collect(Collectors.toList());
     }
 
+    // Typo-tolerant variant of searchAllBooks, closest matches first
+    public List<BookDTO> fuzzySearchBooks(String query) {
+        return findAllInOrder(catalogFuzzyIndex.search(query, CatalogFuzzyIndex.MAX_RESULTS));
+    }
+
+    // Books most often bought together with the given one
+    public List<BookDTO> getRelatedBooks(Long id, int limit) {
+        if (!bookRepository.existsById(id)) {
+            throw new RuntimeException("Book not found with id: " + id);
+        }
+        return findAllInOrder(coPurchaseIndex.related(id, limit));
+    }
+
+    // Most popular first, read off the in-memory ranking; books without a score follow in their given order
+    public List<BookDTO> sortByPopularity(List<BookDTO> books) {
+        Map<Long, BookDTO> byId = new LinkedHashMap<>();
+        books.forEach(book -> byId.put(book.getId(), book));
+        List<BookDTO> sorted = new ArrayList<>(books.size());
+        for (Long id : popularityIndex.ranked()) {
+            BookDTO book = byId.remove(id);
+            if (book != null) {
+                sorted.add(book);
+            }
+        }
+        sorted.addAll(byId.values());
+        return sorted;
+    }
+
+    // One query for all ids; the result keeps the order of ids and skips books that no longer exist
+    private List<BookDTO> findAllInOrder(List<Long> ids) {
+        Map<Long, Book> books = bookRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    // Sparse variant of the listing above: only the columns behind the requested fields are read
+    public List<BookDTO> getBooks(String search, String genre, boolean fuzzy, FieldSelection fields) {
+        List<String> columns = columnsFor(fields);
+        if (search != null && fuzzy) {
+            List<Long> ids = catalogFuzzyIndex.search(search, CatalogFuzzyIndex.MAX_RESULTS);
+            Map<Long, BookDTO> books = bookRepository.findBookColumns(columns, null, null, ids)
+                    .stream()
+                    .map(this::convertToDTO)
+                    .collect(Collectors.toMap(BookDTO::getId, Function.identity()));
+            return ids.stream()
+                    .map(books::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+        return bookRepository.findBookColumns(columns, search, search == null ? genre : null, null)
+                .stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    public BookDTO getBookById(Long id, FieldSelection fields) {
+        return bookRepository.findBookColumns(columnsFor(fields), null, null, List.of(id))
+                .stream()
+                .findFirst()
+                .map(this::convertToDTO)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
+    }
+
     public List<BookDTO> getAllBooksByGenre(String genre) {
         return bookRepository.findByGenre(genre)
                 .stream()
@@ -59,18 +178,55 @@ public class BookService {
         return convertToDTO(book);
     }
 
+    // Prices and stock for a whole cart in one query, with the total an order would be charged now
+    @Transactional(readOnly = true)
+    public BookQuote quote(List<OrderItemRequest> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemRequest item : items) {
+            quantities.merge(item.getBookId(), item.getQuantity(), Integer::sum);
+        }
+        Map<Long, Book> books = bookRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        BookQuote quote = new BookQuote();
+        BigDecimal total = BigDecimal.ZERO;
+        boolean orderable = true;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Book book = books.get(entry.getKey());
+            if (book == null) {
+                quote.getMissingBookIds().add(entry.getKey());
+                orderable = false;
+                continue;
+            }
+            int quantity = entry.getValue();
+            boolean available = book.getStock() >= quantity;
+            BigDecimal subtotal = book.getPrice().multiply(BigDecimal.valueOf(quantity));
+            quote.getLines().add(new BookQuoteLine(book.getId(), book.getTitle(), book.getPrice(),
+                    book.getStock(), quantity, available, subtotal));
+            total = total.add(subtotal);
+            orderable &= available;
+        }
+        quote.setTotal(total);
+        quote.setOrderable(orderable);
+        return quote;
+    }
+
     public BookDTO createBook(BookDTO bookDTO) {
         if (bookRepository.findByIsbn(bookDTO.getIsbn()).isPresent()) {
             throw new RuntimeException("Book with ISBN " + bookDTO.getIsbn() + " already exists");
         }
 
-        Book book = convertToEntity(bookDTO);
-        return convertToDTO(bookRepository.save(book));
+        Book book = bookRepository.save(convertToEntity(bookDTO));
+        priceHistoryService.record(Map.of(book.getId(), book.getPrice()));
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return convertToDTO(book);
     }
 
     public BookDTO updateBook(Long id, BookDTO bookDTO) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
+        int previousStock = book.getStock();
+        BigDecimal previousPrice = book.getPrice();
 
         book.setTitle(bookDTO.getTitle());
         book.setAuthor(bookDTO.getAuthor());
@@ -81,7 +237,56 @@ public class BookService {
         book.setStock(bookDTO.getStock());
         book.setImageUrl(bookDTO.getImageUrl());
 
-        return convertToDTO(bookRepository.save(book));
+        book = bookRepository.save(book);
+        if (book.getPrice().compareTo(previousPrice) != 0) {
+            priceHistoryService.record(Map.of(book.getId(), book.getPrice()));
+        }
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        if (book.getStock() != previousStock) {
+            eventPublisher.publishEvent(new StockChangedEvent(book.getId(), book.getTitle(), book.getGenre(),
+                    book.getReorderThreshold(), previousStock, book.getStock()));
+        }
+        return convertToDTO(book);
+    }
+
+    // Sets many prices in one transaction; returns how many books changed price
+    public int updatePrices(List<BookPriceUpdate> updates) {
+        Map<Long, BigDecimal> prices = new LinkedHashMap<>();
+        for (BookPriceUpdate update : updates) {
+            prices.put(update.getBookId(), update.getPrice());
+        }
+        List<Book> books = bookRepository.findAllById(prices.keySet());
+        if (books.size() != prices.size()) {
+            Set<Long> missing = new LinkedHashSet<>(prices.keySet());
+            books.forEach(book -> missing.remove(book.getId()));
+            throw new RuntimeException("Books not found with ids: " + missing);
+        }
+
+        Map<Long, BigDecimal> changed = new LinkedHashMap<>();
+        for (Book book : books) {
+            BigDecimal price = prices.get(book.getId());
+            if (book.getPrice().compareTo(price) != 0) {
+                book.setPrice(price);
+                changed.put(book.getId(), price);
+            }
+        }
+        bookRepository.saveAll(books);
+        priceHistoryService.record(changed);
+        for (Book book : books) {
+            if (changed.containsKey(book.getId())) {
+                eventPublisher.publishEvent(BookChangedEvent.saved(book));
+            }
+        }
+        return changed.size();
+    }
+
+    public BookDTO setCover(Long id, MultipartFile file) {
+        Book book = bookRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
+        book.setImageUrl(COVER_URL_PREFIX + coverStorageService.store(file));
+        book = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(book));
+        return convertToDTO(book);
     }
 
     public void deleteBook(Long id) {
@@ -89,6 +294,8 @@ public class BookService {
             throw new RuntimeException("Book not found with id: " + id);
         }
         bookRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReviewsChangedEvent(id));
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
     }
 
     public List<String> getAllGenres() {
@@ -113,12 +320,62 @@ public class BookService {
         dto.setImageUrl(book.getImageUrl());
         dto.setCreatedAt(book.getCreatedAt());
 
-        // Ratings
-        Double avgRating = reviewRepository.getAverageRatingByBook(book);
-        Integer totalReviews = reviewRepository.getTotalReviewsByBook(book);
+        // Ratings, from the counters kept on the book row
+        int ratingCount = book.getRatingCount();
+        dto.setAverageRating(ratingCount > 0 ? (double) book.getRatingSum() / ratingCount : 0.0);
+        dto.setTotalReviews(ratingCount);
+
+        Map<Integer, Integer> histogram = new LinkedHashMap<>();
+        histogram.put(1, book.getRating1Count());
+        histogram.put(2, book.getRating2Count());
+        histogram.put(3, book.getRating3Count());
+        histogram.put(4, book.getRating4Count());
+        histogram.put(5, book.getRating5Count());
+        dto.setRatingHistogram(histogram);
 
-        dto.setAverageRating(avgRating != null ? avgRating : 0.0);
-        dto.setTotalReviews(totalReviews != null ? totalReviews : 0);
+        return dto;
+    }
+
+    private static List<String> columnsFor(FieldSelection fields) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add("id");
+        BOOK_COLUMNS.forEach((field, attributes) -> {
+            if (fields.includes(field)) {
+                columns.addAll(attributes);
+            }
+        });
+        return new ArrayList<>(columns);
+    }
+
+    // From a findBookColumns row; fields whose columns were not selected stay null
+    private BookDTO convertToDTO(Map<String, Object> row) {
+        BookDTO dto = new BookDTO();
+
+        dto.setId((Long) row.get("id"));
+        dto.setTitle((String) row.get("title"));
+        dto.setAuthor((String) row.get("author"));
+        dto.setGenre((String) row.get("genre"));
+        dto.setIsbn((String) row.get("isbn"));
+        dto.setPrice((BigDecimal) row.get("price"));
+        dto.setDescription((String) row.get("description"));
+        dto.setStock((Integer) row.get("stock"));
+        dto.setImageUrl((String) row.get("imageUrl"));
+        dto.setCreatedAt((LocalDateTime) row.get("createdAt"));
+
+        if (row.containsKey("ratingCount")) {
+            int ratingCount = (Integer) row.get("ratingCount");
+            dto.setTotalReviews(ratingCount);
+            if (row.containsKey("ratingSum")) {
+                dto.setAverageRating(ratingCount > 0 ? (double) (Long) row.get("ratingSum") / ratingCount : 0.0);
+            }
+        }
+        if (row.containsKey("rating1Count")) {
+            Map<Integer, Integer> histogram = new LinkedHashMap<>();
+            for (int star = 1; star <= 5; star++) {
+                histogram.put(star, (Integer) row.get("rating" + star + "Count"));
+            }
+            dto.setRatingHistogram(histogram);
+        }
 
         return dto;
     }
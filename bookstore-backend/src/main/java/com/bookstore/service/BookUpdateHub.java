@@ -0,0 +1,260 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.BookOfferUpdate;
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.event.StockChangedEvent;
+import com.bookstore.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes price and stock changes to open product pages over server-sent events. Committed
+ * changes only mark a watched book dirty; a periodic flush reads the current values of all dirty
+ * books in one query and fans them out, so a burst of orders on one title becomes at most one
+ * push per flush interval. New subscribers get their first values from the next flush as well,
+ * so the long-lived request never touches the database (and never pins a pooled connection). Each subscriber holds just the latest unsent value per book and is
+ * written one write at a time by a sender pool that grows with the writes in flight, so a client
+ * that stops reading ties up only its own sender thread (until the container's write timeout),
+ * never the flush or other clients; one that stays blocked past the stall timeout is dropped.
+ */
+@Service
+public class BookUpdateHub {
+    public static final int MAX_BOOKS_PER_SUBSCRIPTION = 50;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${app.live.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${app.live.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.live.stall-timeout-ms:30000}")
+    private long stallTimeoutMs;
+
+    // Sender threads kept between bursts; more are started while writes are in flight
+    @Value("${app.live.sender-threads:4}")
+    private int senderThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> subscribersByBook = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Subscribers still waiting for the current values of their books
+    private final Set<Subscriber> joined = ConcurrentHashMap.newKeySet();
+    // Last values fanned out per watched book; a change that leaves both as they were is not pushed
+    private final Map<Long, BookOfferUpdate> lastPushed = new ConcurrentHashMap<>();
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void init() {
+        // A direct hand-off: a drain never waits behind a write blocked on another client. At most one
+        // drain per subscriber runs, so the subscriber cap also caps the threads
+        sender = new ThreadPoolExecutor(Math.max(1, senderThreads), Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "book-updates-sender");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public SseEmitter subscribe(Collection<Long> bookIds) {
+        Set<Long> ids = new LinkedHashSet<>(bookIds);
+        if (ids.isEmpty() || ids.size() > MAX_BOOKS_PER_SUBSCRIPTION) {
+            throw new RuntimeException("Subscribe to between 1 and " + MAX_BOOKS_PER_SUBSCRIPTION + " books");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RuntimeException("Too many live connections, try again later");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, ids);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        for (Long id : ids) {
+            subscribersByBook.compute(id, (key, watching) -> {
+                Set<Subscriber> set = watching != null ? watching : ConcurrentHashMap.newKeySet();
+                set.add(subscriber);
+                return set;
+            });
+        }
+
+        // Registered before the flush reads, so any change committed after that read is pushed as well
+        joined.add(subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        markDirty(event.getBookId());
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        // Covers price edits; unchanged values are filtered out at flush time
+        if (!event.isDeleted()) {
+            markDirty(event.getBookId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.live.flush-interval-ms:500}")
+    public void flush() {
+        if (dirty.isEmpty() && joined.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        List<Subscriber> newcomers = new ArrayList<>(joined);
+        joined.removeAll(newcomers);
+
+        Set<Long> toRead = new HashSet<>(ids);
+        newcomers.forEach(subscriber -> toRead.addAll(subscriber.bookIds));
+        Map<Long, BookOfferUpdate> current = new HashMap<>();
+        for (BookRepository.Offer offer : bookRepository.findOffersByIdIn(toRead)) {
+            current.put(offer.getId(), toUpdate(offer));
+        }
+
+        for (Subscriber subscriber : newcomers) {
+            for (Long id : subscriber.bookIds) {
+                BookOfferUpdate update = current.get(id);
+                if (update != null) {
+                    subscriber.pending.put(id, update);
+                }
+            }
+            schedule(subscriber);
+        }
+        for (Long id : ids) {
+            BookOfferUpdate update = current.get(id);
+            if (update == null || update.equals(lastPushed.put(id, update))) {
+                continue;
+            }
+            for (Subscriber subscriber : subscribersByBook.getOrDefault(id, Set.of())) {
+                subscriber.pending.put(id, update);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.sending.get()) {
+                subscriber.heartbeatDue = true;
+                schedule(subscriber);
+            } else if (now - subscriber.sendingSince > stallTimeoutMs) {
+                // Still stuck on an earlier write: the client is not reading
+                unsubscribe(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public int getWatchedBookCount() {
+        return subscribersByBook.size();
+    }
+
+    private void markDirty(Long bookId) {
+        if (subscribersByBook.containsKey(bookId)) {
+            dirty.add(bookId);
+        }
+    }
+
+    // At most one drain per subscriber is queued or running, so writes to an emitter never overlap
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            subscriber.sendingSince = System.currentTimeMillis();
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                for (Long bookId : subscriber.pending.keySet()) {
+                    BookOfferUpdate update = subscriber.pending.remove(bookId);
+                    if (update != null) {
+                        subscriber.emitter.send(SseEmitter.event().name("offer").data(update));
+                    }
+                }
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                subscriber.sending.set(false);
+                // Anything queued while we were writing is picked up here instead of by a new task
+                if ((subscriber.pending.isEmpty() && !subscriber.heartbeatDue)
+                        || !subscriber.sending.compareAndSet(false, true)) {
+                    return;
+                }
+                subscriber.sendingSince = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the container completes the emitter. Leaving sending set stops further drains
+            unsubscribe(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        joined.remove(subscriber);
+        for (Long id : subscriber.bookIds) {
+            subscribersByBook.computeIfPresent(id, (key, watching) -> {
+                watching.remove(subscriber);
+                if (watching.isEmpty()) {
+                    lastPushed.remove(key);
+                    return null;
+                }
+                return watching;
+            });
+        }
+    }
+
+    private static BookOfferUpdate toUpdate(BookRepository.Offer offer) {
+        return new BookOfferUpdate(offer.getId(), offer.getPrice(), offer.getStock());
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final Set<Long> bookIds;
+        // Latest unsent value per book; bounded by bookIds, newer values overwrite older ones
+        final Map<Long, BookOfferUpdate> pending = new ConcurrentHashMap<>();
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile long sendingSince;
+        volatile boolean heartbeatDue;
+
+        Subscriber(SseEmitter emitter, Set<Long> bookIds) {
+            this.emitter = emitter;
+            this.bookIds = bookIds;
+        }
+    }
+}
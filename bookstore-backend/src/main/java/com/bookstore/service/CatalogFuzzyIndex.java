@@ -0,0 +1,237 @@
+package com.bookstore.service;
+
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant search over book titles and authors. The distinct words of the catalog are
+ * indexed by their trigrams; a query word collects candidate words by shared-trigram count,
+ * and only those are checked with a bounded edit distance (1 typo up to 5 letters, 2 above).
+ * Query words too short for the trigram count to rule anything out (a match may share no
+ * trigram at all, e.g. "cat" and "cut") are checked against every word of a close length.
+ * A book matches when every query word matches one of its words; books with fewer total edits
+ * rank first. Loaded at startup and updated after each committed book change.
+ */
+@Service
+public class CatalogFuzzyIndex {
+    public static final int MAX_RESULTS = 50;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // trigram -> words containing it
+    private final Map<String, Set<String>> wordsByGram = new HashMap<>();
+    // length -> words of that length
+    private final Map<Integer, Set<String>> wordsByLength = new HashMap<>();
+    // word -> books whose title or author contains it
+    private final Map<String, Set<Long>> booksByWord = new HashMap<>();
+    private final Map<Long, List<String>> wordsByBook = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        List<BookRepository.CatalogText> books = bookRepository.findAllCatalogText();
+        lock.writeLock().lock();
+        try {
+            books.forEach(book -> addBook(book.getId(), book.getTitle(), book.getAuthor()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeBook(event.getBookId());
+            if (!event.isDeleted()) {
+                addBook(event.getBookId(), event.getTitle(), event.getAuthor());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of the best matching books, closest first
+    public List<Long> search(String query, int limit) {
+        List<String> queryWords = CatalogTokens.tokens(query);
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            // Per book, the summed edit distance of its best match for each query word so far
+            Map<Long, Integer> distances = null;
+            for (String queryWord : queryWords) {
+                Map<Long, Integer> matched = new HashMap<>();
+                matchingWords(queryWord).forEach((word, distance) -> {
+                    for (Long bookId : booksByWord.get(word)) {
+                        matched.merge(bookId, distance, Math::min);
+                    }
+                });
+                if (distances == null) {
+                    distances = matched;
+                } else {
+                    Map<Long, Integer> previous = distances;
+                    matched.keySet().retainAll(previous.keySet());
+                    matched.replaceAll((bookId, distance) -> distance + previous.get(bookId));
+                    distances = matched;
+                }
+                if (distances.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return distances.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Catalog words within the allowed edit distance of the query word, with that distance
+    private Map<String, Integer> matchingWords(String queryWord) {
+        int maxEdits = queryWord.length() <= 2 ? 0 : queryWord.length() <= 5 ? 1 : 2;
+        Map<String, Integer> matches = new HashMap<>();
+        if (maxEdits == 0) {
+            if (booksByWord.containsKey(queryWord)) {
+                matches.put(queryWord, 0);
+            }
+            return matches;
+        }
+
+        // Candidate generation: an edit touches at most four of the query's trigrams (a swap of
+        // two letters is one edit here), so closer words must share the rest
+        Set<String> queryGrams = trigrams(queryWord);
+        int minShared = queryGrams.size() - 4 * maxEdits;
+        if (minShared <= 0) {
+            // Every trigram may be touched: only the length narrows it down
+            for (int length = queryWord.length() - maxEdits; length <= queryWord.length() + maxEdits; length++) {
+                for (String word : wordsByLength.getOrDefault(length, Set.of())) {
+                    addIfClose(matches, queryWord, word, maxEdits);
+                }
+            }
+            return matches;
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            for (String word : wordsByGram.getOrDefault(gram, Set.of())) {
+                shared.merge(word, 1, Integer::sum);
+            }
+        }
+        shared.forEach((word, count) -> {
+            if (count >= minShared && Math.abs(word.length() - queryWord.length()) <= maxEdits) {
+                addIfClose(matches, queryWord, word, maxEdits);
+            }
+        });
+        return matches;
+    }
+
+    private static void addIfClose(Map<String, Integer> matches, String queryWord, String word, int maxEdits) {
+        int distance = editDistance(queryWord, word, maxEdits);
+        if (distance <= maxEdits) {
+            matches.put(word, distance);
+        }
+    }
+
+    // ---- maintenance (callers hold the write lock) ----
+
+    private void addBook(Long bookId, String title, String author) {
+        List<String> words = CatalogTokens.tokens(title + " " + author);
+        wordsByBook.put(bookId, words);
+        for (String word : words) {
+            Set<Long> books = booksByWord.computeIfAbsent(word, key -> new HashSet<>());
+            if (books.isEmpty()) {
+                for (String gram : trigrams(word)) {
+                    wordsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(word);
+                }
+                wordsByLength.computeIfAbsent(word.length(), key -> new HashSet<>()).add(word);
+            }
+            books.add(bookId);
+        }
+    }
+
+    private void removeBook(Long bookId) {
+        List<String> words = wordsByBook.remove(bookId);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Set<Long> books = booksByWord.get(word);
+            books.remove(bookId);
+            if (books.isEmpty()) {
+                booksByWord.remove(word);
+                for (String gram : trigrams(word)) {
+                    Set<String> gramWords = wordsByGram.get(gram);
+                    gramWords.remove(word);
+                    if (gramWords.isEmpty()) {
+                        wordsByGram.remove(gram);
+                    }
+                }
+                Set<String> sameLength = wordsByLength.get(word.length());
+                sameLength.remove(word);
+                if (sameLength.isEmpty()) {
+                    wordsByLength.remove(word.length());
+                }
+            }
+        }
+    }
+
+    // Distinct trigrams of the word padded with one boundary marker on each side
+    private static Set<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Edit distance counting adjacent transpositions as one edit; gives up above maxEdits
+    private static int editDistance(String a, String b, int maxEdits) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
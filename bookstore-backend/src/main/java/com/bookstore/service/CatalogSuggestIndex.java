@@ -0,0 +1,357 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.BookSuggestion;
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.event.OrderLineSnapshot;
+import com.bookstore.event.OrderPlacedEvent;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead over book titles, authors and genres. Every normalized word of an entry is put in
+ * a character trie whose nodes keep the most popular entries of their subtree, so a one-word
+ * prefix costs a walk down the prefix plus reading that node's list. Popularity is units sold:
+ * per book for titles, summed over their books for authors and genres. Loaded at startup and
+ * updated after each committed book change or order.
+ */
+@Service
+public class CatalogSuggestIndex {
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Multi-word prefixes walk one word's subtree and verify the rest; this bounds that walk
+    private static final int MULTI_WORD_SCAN_LIMIT = 5000;
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingLong((Entry entry) -> entry.weight)
+            .reversed()
+            .thenComparing(entry -> entry.text)
+            .thenComparing(entry -> entry.type);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node(null, '\0');
+    private final Map<Long, Entry> titles = new HashMap<>();
+    private final Map<String, Entry> authors = new HashMap<>();
+    private final Map<String, Entry> genres = new HashMap<>();
+    private final Map<Long, Long> unitsSold = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        // Requests are served before the application is ready, so events may already have filled in
+        // some books. Reading under the write lock orders this load after them and before any later
+        // event, and each book replaces its earlier entry
+        lock.writeLock().lock();
+        try {
+            orderRepository.sumUnitsByBook().forEach(row -> unitsSold.put(row.getBookId(), row.getUnits()));
+            for (BookRepository.CatalogText book : bookRepository.findAllCatalogText()) {
+                removeBook(book.getId());
+                addBook(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeBook(event.getBookId());
+            if (event.isDeleted()) {
+                unitsSold.remove(event.getBookId());
+            } else {
+                addBook(event.getBookId(), event.getTitle(), event.getAuthor(), event.getGenre());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (OrderLineSnapshot line : event.getLines()) {
+                unitsSold.merge(line.getBookId(), (long) line.getQuantity(), Long::sum);
+                Entry title = titles.get(line.getBookId());
+                if (title != null) {
+                    reweight(title, line.getQuantity());
+                    reweight(title.author, line.getQuantity());
+                    reweight(title.genre, line.getQuantity());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        List<String> words = CatalogTokens.tokens(prefix);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Entry> found;
+            if (words.size() == 1) {
+                Node node = find(words.get(0));
+                found = node == null ? List.of() : Arrays.asList(node.top);
+            } else {
+                found = matchAll(words);
+            }
+            return found.stream()
+                    .limit(limit)
+                    .map(entry -> new BookSuggestion(entry.text, entry.type, entry.bookId))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Entry> matchAll(List<String> words) {
+        // Walk the subtree of the longest (most selective) word and keep entries matching every word
+        Node start = null;
+        String startWord = null;
+        for (String word : words) {
+            Node node = find(word);
+            if (node == null) {
+                return List.of();
+            }
+            if (startWord == null || word.length() > startWord.length()) {
+                start = node;
+                startWord = word;
+            }
+        }
+
+        List<Entry> matches = new ArrayList<>();
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        int scanned = 0;
+        while (!stack.isEmpty() && scanned < MULTI_WORD_SCAN_LIMIT) {
+            Node node = stack.pop();
+            for (Entry entry : node.own) {
+                scanned++;
+                if (seen.add(entry) && words.stream().allMatch(word ->
+                        entry.tokens.stream().anyMatch(token -> token.startsWith(word)))) {
+                    matches.add(entry);
+                }
+            }
+            for (Node child : node.children) {
+                stack.push(child);
+            }
+        }
+        matches.sort(BY_POPULARITY);
+        return matches;
+    }
+
+    // ---- entries (callers hold the write lock) ----
+
+    private void addBook(Long bookId, String title, String author, String genre) {
+        long units = unitsSold.getOrDefault(bookId, 0L);
+        Entry entry = new Entry(BookSuggestion.Type.TITLE, title, bookId, null);
+        entry.weight = units;
+        entry.author = attach(authors, BookSuggestion.Type.AUTHOR, author, units);
+        entry.genre = attach(genres, BookSuggestion.Type.GENRE, genre, units);
+        titles.put(bookId, entry);
+        insert(entry);
+    }
+
+    private void removeBook(Long bookId) {
+        Entry entry = titles.remove(bookId);
+        if (entry == null) {
+            return;
+        }
+        remove(entry);
+        detach(authors, entry.author, entry.weight);
+        detach(genres, entry.genre, entry.weight);
+    }
+
+    private Entry attach(Map<String, Entry> entries, BookSuggestion.Type type, String text, long units) {
+        String key = CatalogTokens.normalize(text).trim();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(type, text, null, key);
+            entries.put(key, entry);
+        } else {
+            remove(entry);
+        }
+        entry.books++;
+        entry.weight += units;
+        insert(entry);
+        return entry;
+    }
+
+    private void detach(Map<String, Entry> entries, Entry entry, long units) {
+        remove(entry);
+        entry.books--;
+        entry.weight -= units;
+        if (entry.books == 0) {
+            entries.remove(entry.key);
+        } else {
+            insert(entry);
+        }
+    }
+
+    private void reweight(Entry entry, long delta) {
+        remove(entry);
+        entry.weight += delta;
+        insert(entry);
+    }
+
+    // ---- trie ----
+
+    private Node find(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(word.charAt(i));
+        }
+        return node;
+    }
+
+    private void insert(Entry entry) {
+        for (String token : entry.tokens) {
+            Node node = root;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.childOrCreate(token.charAt(i));
+            }
+            int at = Collections.binarySearch(node.own, entry, BY_POPULARITY);
+            node.own.add(at < 0 ? -at - 1 : at, entry);
+            refreshTopUpwards(node);
+        }
+    }
+
+    private void remove(Entry entry) {
+        for (String token : entry.tokens) {
+            Node node = find(token);
+            node.own.remove(entry);
+            // Prune branches that no longer lead to any entry
+            while (node.parent != null && node.own.isEmpty() && node.children.length == 0) {
+                node.parent.removeChild(node.key);
+                node = node.parent;
+            }
+            refreshTopUpwards(node);
+        }
+    }
+
+    private static void refreshTopUpwards(Node node) {
+        for (; node != null; node = node.parent) {
+            List<Entry> candidates = new ArrayList<>(node.own.subList(0, Math.min(MAX_SUGGESTIONS, node.own.size())));
+            for (Node child : node.children) {
+                for (Entry entry : child.top) {
+                    if (!candidates.contains(entry)) {
+                        candidates.add(entry);
+                    }
+                }
+            }
+            candidates.sort(BY_POPULARITY);
+            node.top = candidates.subList(0, Math.min(MAX_SUGGESTIONS, candidates.size())).toArray(new Entry[0]);
+        }
+    }
+
+    private static final class Entry {
+        final BookSuggestion.Type type;
+        final String text;
+        final Long bookId;
+        final String key;
+        final List<String> tokens;
+        long weight;
+        // Authors and genres: number of books carrying this name
+        int books;
+        // Titles: the author and genre entries the book contributes to
+        Entry author;
+        Entry genre;
+
+        Entry(BookSuggestion.Type type, String text, Long bookId, String key) {
+            this.type = type;
+            this.text = text;
+            this.bookId = bookId;
+            this.key = key;
+            this.tokens = CatalogTokens.tokens(text);
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final Node parent;
+        final char key;
+        // Sorted by key for binary search; tries are sparse so arrays beat maps here
+        char[] keys = new char[0];
+        Node[] children = NO_CHILDREN;
+        // Entries with a word ending exactly here, most popular first
+        final List<Entry> own = new ArrayList<>(1);
+        // Most popular entries anywhere in this subtree
+        Entry[] top = new Entry[0];
+
+        Node(Node parent, char key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        Node child(char c) {
+            int at = Arrays.binarySearch(keys, c);
+            return at >= 0 ? children[at] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int at = Arrays.binarySearch(keys, c);
+            if (at >= 0) {
+                return children[at];
+            }
+            at = -at - 1;
+            Node child = new Node(this, c);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newKeys[at] = c;
+            newChildren[at] = child;
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char c) {
+            int at = Arrays.binarySearch(keys, c);
+            if (at < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(keys, at + 1, newKeys, at, keys.length - at - 1);
+            System.arraycopy(children, at + 1, newChildren, at, children.length - at - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bookstore.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Text normalization shared by the in-memory catalog indexes: lower case, accents stripped
+final class CatalogTokens {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private CatalogTokens() {
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Distinct alphanumeric words, in order of first appearance
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,231 @@
+package com.bookstore.service;
+
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.event.OrderLineSnapshot;
+import com.bookstore.event.OrderPlacedEvent;
+import com.bookstore.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Customers who bought this also bought": for every book, the books most often found in the
+ * same orders. Each book keeps a bounded row of neighbours in primitive arrays, sorted by
+ * co-occurrence count; once a row is full a new neighbour replaces the weakest one and inherits
+ * its count (space-saving), so frequent pairs stay accurate while memory stays capped. Built at
+ * startup from order_items in parallel order-id ranges and updated after each placed order.
+ */
+@Service
+public class CoPurchaseIndex {
+    public static final int MAX_RELATED = 10;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${app.recommendations.neighbours-per-book:50}")
+    private int neighboursPerBook;
+
+    @Value("${app.recommendations.bootstrap-chunk-size:5000}")
+    private int bootstrapChunkSize;
+
+    // Keep at or below the connection pool size; each worker holds a connection per chunk
+    @Value("${app.recommendations.bootstrap-threads:2}")
+    private int bootstrapThreads;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Neighbours> rows = new HashMap<>();
+    // Orders up to this id are counted by the bootstrap scan, so their events are held back until it
+    // is done. Everything is held back until the scan's upper bound is known. Guarded by lock
+    private long scannedUpTo = Long.MAX_VALUE;
+    // Held-back events by order id, and the orders the scan's chunks actually read. A chunk can run
+    // before an order below the bound commits; such an order is counted from its event. Guarded by lock
+    private final Map<Long, long[]> heldBack = new HashMap<>();
+    private final BitSet scannedOrders = new BitSet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // Orders above this id arrive through onOrderPlaced, so each order is counted once
+        long maxOrderId;
+        lock.writeLock().lock();
+        try {
+            Long max = orderRepository.findMaxOrderId();
+            maxOrderId = max != null ? max : 0;
+            scannedUpTo = maxOrderId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, bootstrapThreads), runnable -> {
+            Thread thread = new Thread(runnable, "co-purchase-bootstrap");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (long after = 0; after < maxOrderId; after += bootstrapChunkSize) {
+                long from = after;
+                long upTo = Math.min(after + bootstrapChunkSize, maxOrderId);
+                chunks.add(CompletableFuture.runAsync(() -> loadChunk(from, upTo), executor));
+            }
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+            lock.writeLock().lock();
+            try {
+                scannedUpTo = 0;
+                heldBack.forEach((orderId, books) -> {
+                    if (!scannedOrders.get(Math.toIntExact(orderId))) {
+                        recordOrder(books);
+                    }
+                });
+                heldBack.clear();
+                scannedOrders.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        long[] books = event.getLines().stream()
+                .mapToLong(OrderLineSnapshot::getBookId)
+                .distinct()
+                .toArray();
+        lock.writeLock().lock();
+        try {
+            if (event.getOrderId() > scannedUpTo) {
+                recordOrder(books);
+            } else {
+                heldBack.put(event.getOrderId(), books);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (!event.isDeleted()) {
+            return;
+        }
+        // Other rows may still name the book; readers drop ids that no longer resolve
+        lock.writeLock().lock();
+        try {
+            rows.remove(event.getBookId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of the books most often bought together with the given one, most frequent first
+    public List<Long> related(Long bookId, int limit) {
+        lock.readLock().lock();
+        try {
+            Neighbours row = rows.get(bookId);
+            if (row == null) {
+                return List.of();
+            }
+            int n = Math.min(limit, row.size);
+            List<Long> ids = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                ids.add(row.ids[i]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void loadChunk(long afterOrderId, long upToOrderId) {
+        List<OrderRepository.OrderBook> pairs = orderRepository.findOrderBooksBetween(afterOrderId, upToOrderId);
+        lock.writeLock().lock();
+        try {
+            // Pairs come ordered by order id; flush the books of each order as it ends
+            long[] books = new long[8];
+            int count = 0;
+            Long currentOrder = null;
+            for (OrderRepository.OrderBook pair : pairs) {
+                if (!pair.getOrderId().equals(currentOrder)) {
+                    recordOrder(Arrays.copyOf(books, count));
+                    currentOrder = pair.getOrderId();
+                    scannedOrders.set(Math.toIntExact(currentOrder));
+                    count = 0;
+                }
+                if (count == books.length) {
+                    books = Arrays.copyOf(books, count * 2);
+                }
+                books[count++] = pair.getBookId();
+            }
+            recordOrder(Arrays.copyOf(books, count));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock; books are the distinct books of one order
+    private void recordOrder(long[] books) {
+        for (int i = 0; i < books.length; i++) {
+            for (int j = i + 1; j < books.length; j++) {
+                row(books[i]).increment(books[j]);
+                row(books[j]).increment(books[i]);
+            }
+        }
+    }
+
+    private Neighbours row(long bookId) {
+        return rows.computeIfAbsent(bookId, id -> new Neighbours(Math.max(1, neighboursPerBook)));
+    }
+
+    private static final class Neighbours {
+        final long[] ids;
+        final int[] counts;
+        int size;
+
+        Neighbours(int capacity) {
+            ids = new long[capacity];
+            counts = new int[capacity];
+        }
+
+        void increment(long id) {
+            int at = 0;
+            while (at < size && ids[at] != id) {
+                at++;
+            }
+            if (at == size) {
+                if (size < ids.length) {
+                    size++;
+                } else {
+                    // Full: evict the weakest neighbour and take over its count
+                    at = size - 1;
+                }
+                ids[at] = id;
+            }
+            counts[at]++;
+            // Restore descending count order
+            while (at > 0 && counts[at - 1] < counts[at]) {
+                long id0 = ids[at - 1];
+                int count0 = counts[at - 1];
+                ids[at - 1] = ids[at];
+                counts[at - 1] = counts[at];
+                ids[at] = id0;
+                counts[at] = count0;
+                at--;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bookstore.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * TTL cache whose entries are futures, so concurrent misses on one key wait for a single load
+ * instead of each running it. A failed load completes its future exceptionally (whatever it threw)
+ * and leaves the map, so waiters see the failure and the next request loads again.
+ */
+final class CoalescingCache<K, V> {
+    private final long ttlMs;
+    private final int maxSize;
+    private final Map<K, Entry<V>> cache = new ConcurrentHashMap<>();
+
+    CoalescingCache(long ttlMs, int maxSize) {
+        this.ttlMs = ttlMs;
+        this.maxSize = maxSize;
+    }
+
+    V get(K key, Function<K, V> loader) {
+        long now = System.currentTimeMillis();
+        Entry<V> cached = cache.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return join(cached.value);
+        }
+
+        Entry<V> mine = new Entry<>(new CompletableFuture<>(), now + ttlMs);
+        Entry<V> winner = cached == null ? cache.putIfAbsent(key, mine)
+                : (cache.replace(key, cached, mine) ? null : cache.get(key));
+        if (winner != null) {
+            // Another request is already loading (or just loaded) this key
+            return join(winner.value);
+        }
+
+        if (cache.size() > maxSize) {
+            evict(now);
+        }
+        try {
+            mine.value.complete(loader.apply(key));
+        } catch (Throwable t) {
+            cache.remove(key, mine);
+            mine.value.completeExceptionally(t);
+        }
+        return join(mine.value);
+    }
+
+    void invalidate(K key) {
+        cache.remove(key);
+    }
+
+    private void evict(long now) {
+        cache.values().removeIf(entry -> entry.expiresAt <= now);
+        Iterator<K> it = cache.keySet().iterator();
+        int toDrop = cache.size() - maxSize + maxSize / 10;
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry<V>(CompletableFuture<V> value, long expiresAt) {
+    }
+}
@@ -0,0 +1,292 @@
+package com.bookstore.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cover images on the local filesystem. Files are named by a hash of their content, so a name
+ * never changes meaning and can be cached forever, and uploading the same image twice stores it
+ * once. Thumbnails at the configured widths are rendered off the request thread by a bounded
+ * pool; when the queue is full the uploading request renders its own. Until a thumbnail exists
+ * the original is served in its place, marked provisional so it is not cached as the thumbnail,
+ * and the render is queued again. Images that cannot be decoded for scaling are remembered and
+ * only retried when uploaded again.
+ */
+@Service
+public class CoverStorageService {
+    private static final Pattern FILENAME = Pattern.compile("([0-9a-f]{32})\\.(jpg|png)");
+    // Rejects decompression bombs before the pixels are decoded
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    @Value("${app.covers.dir:./data/covers}")
+    private String dir;
+
+    @Value("${app.covers.thumbnail-widths:200,400}")
+    private List<Integer> thumbnailWidths;
+
+    @Value("${app.covers.thumbnail-threads:2}")
+    private int thumbnailThreads;
+
+    @Value("${app.covers.thumbnail-queue-capacity:100}")
+    private int thumbnailQueueCapacity;
+
+    private Path root;
+    private ThreadPoolExecutor thumbnailer;
+    // Hashes with a render queued or running, so a burst of requests queues one render
+    private final Set<String> rendering = ConcurrentHashMap.newKeySet();
+    // Hashes whose original could not be scaled (e.g. CMYK JPEGs ImageIO cannot decode)
+    private final Set<String> unrenderable = ConcurrentHashMap.newKeySet();
+    // Pixel width per original; content-addressed, so it never changes
+    private final Map<String, Integer> originalWidths = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(dir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        int threads = Math.max(1, thumbnailThreads);
+        thumbnailer = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, thumbnailQueueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "cover-thumbnailer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Stores the upload and returns its file name
+    public String store(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("Cover file is empty");
+        }
+        try {
+            byte[] bytes = file.getBytes();
+            String extension = detectExtension(bytes);
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes), 0, 16);
+            String filename = hash + "." + extension;
+            Path target = root.resolve(filename);
+            if (!Files.exists(target)) {
+                writeAtomically(target, bytes);
+            }
+            // Also on a re-upload, which retries thumbnails that are missing or failed before
+            unrenderable.remove(hash);
+            if (missingThumbnail(hash, extension, target)) {
+                queueRender(target, hash, extension, true);
+            }
+            return filename;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store cover: " + e.getMessage());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The stored file for a name, or its thumbnail closest to (and at least) the requested width.
+    // Provisional when the original stands in for a thumbnail that is not rendered yet
+    public ResolvedCover resolve(String filename, Integer width) {
+        Matcher matcher = FILENAME.matcher(filename);
+        if (!matcher.matches()) {
+            throw new RuntimeException("Cover not found: " + filename);
+        }
+        if (width != null) {
+            Integer size = thumbnailWidths.stream()
+                    .sorted()
+                    .filter(candidate -> candidate >= width)
+                    .findFirst()
+                    .orElse(null);
+            if (size != null) {
+                Path thumbnail = root.resolve(thumbnailName(matcher.group(1), size, matcher.group(2)));
+                if (Files.exists(thumbnail)) {
+                    return new ResolvedCover(thumbnail, false);
+                }
+                Path original = findOriginal(filename);
+                // Never upscaled: for a narrower original the original is the final answer
+                if (size >= widthOf(matcher.group(1), original)) {
+                    return new ResolvedCover(original, false);
+                }
+                if (!unrenderable.contains(matcher.group(1))) {
+                    queueRender(original, matcher.group(1), matcher.group(2), false);
+                }
+                return new ResolvedCover(original, true);
+            }
+        }
+        return new ResolvedCover(findOriginal(filename), false);
+    }
+
+    private Path findOriginal(String filename) {
+        Path original = root.resolve(filename);
+        if (!Files.exists(original)) {
+            throw new RuntimeException("Cover not found: " + filename);
+        }
+        return original;
+    }
+
+    // Uploads may render on their own thread when the queue is full; readers never wait for a render
+    private void queueRender(Path original, String hash, String extension, boolean fromUpload) {
+        if (!fromUpload && thumbnailer.getQueue().remainingCapacity() == 0) {
+            return;
+        }
+        if (!rendering.add(hash)) {
+            return;
+        }
+        try {
+            thumbnailer.execute(() -> {
+                try {
+                    renderThumbnails(original, hash, extension);
+                } finally {
+                    rendering.remove(hash);
+                }
+            });
+        } catch (RuntimeException e) {
+            rendering.remove(hash);
+            throw e;
+        }
+    }
+
+    private int widthOf(String hash, Path original) {
+        return originalWidths.computeIfAbsent(hash, key -> {
+            try {
+                return readWidth(original);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private boolean missingThumbnail(String hash, String extension, Path original) {
+        int width = widthOf(hash, original);
+        for (int size : thumbnailWidths) {
+            if (size < width && !Files.exists(root.resolve(thumbnailName(hash, size, extension)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int readWidth(Path image) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return 0;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                return reader.getWidth(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private String detectExtension(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new RuntimeException("Cover must be a JPEG or PNG image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                String format = reader.getFormatName().toLowerCase();
+                if (!format.equals("jpeg") && !format.equals("png")) {
+                    throw new RuntimeException("Cover must be a JPEG or PNG image");
+                }
+                reader.setInput(input);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    throw new RuntimeException("Cover image dimensions are too large");
+                }
+                return format.equals("jpeg") ? "jpg" : "png";
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void renderThumbnails(Path original, String hash, String extension) {
+        try {
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                unrenderable.add(hash);
+                return;
+            }
+            for (int width : thumbnailWidths) {
+                // Never upscale; the original is served for widths it cannot fill
+                if (width >= source.getWidth()) {
+                    continue;
+                }
+                int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+                BufferedImage scaled = new BufferedImage(width, height,
+                        extension.equals("png") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = scaled.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    graphics.drawImage(source, 0, 0, width, height, null);
+                } finally {
+                    graphics.dispose();
+                }
+                Path temp = tempFileFor(hash);
+                try {
+                    ImageIO.write(scaled, extension.equals("png") ? "png" : "jpeg", temp.toFile());
+                    Files.move(temp, root.resolve(thumbnailName(hash, width, extension)),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The original keeps being served for this cover until it is uploaded again
+            unrenderable.add(hash);
+        }
+    }
+
+    private void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path temp = tempFileFor(target.getFileName().toString());
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Files.createTempFile would create it owner-only; covers should keep the directory's usual permissions
+    private Path tempFileFor(String name) {
+        return root.resolve(name + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    private static String thumbnailName(String hash, int width, String extension) {
+        return hash + "-w" + width + "." + extension;
+    }
+
+    public record ResolvedCover(Path path, boolean provisional) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.LowStockAlert;
+import com.bookstore.event.GenreThresholdChangedEvent;
+import com.bookstore.event.LowStockAlertEvent;
+import com.bookstore.event.StockChangedEvent;
+import com.bookstore.model.Book;
+import com.bookstore.model.GenreStockThreshold;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.GenreStockThresholdRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Raises low-stock alerts when a stock change crosses a book's reorder threshold.
+ * Threshold resolution: book override, then genre threshold, then the configured default.
+ * A book stays "alerted" until its stock climbs above threshold + rearm margin, so a title
+ * flapping around its threshold raises a single alert.
+ */
+@Service
+public class LowStockMonitor {
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private GenreStockThresholdRepository genreStockThresholdRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.inventory.default-reorder-threshold:5}")
+    private int defaultThreshold;
+
+    @Value("${app.inventory.rearm-margin:2}")
+    private int rearmMargin;
+
+    @Value("${app.inventory.alert-feed-size:200}")
+    private int feedSize;
+
+    private final Map<String, Integer> genreThresholds = new ConcurrentHashMap<>();
+    private final Set<Long> alerted = ConcurrentHashMap.newKeySet();
+    private final Deque<LowStockAlert> feed = new ArrayDeque<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        genreStockThresholdRepository.findAll()
+                .forEach(t -> genreThresholds.put(t.getGenre(), t.getThreshold()));
+        // Titles already low at startup are listed but not re-alerted
+        getLowStockBooks().forEach(item -> alerted.add(item.getBookId()));
+    }
+
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        evaluate(event.getBookId(), event.getTitle(), event.getGenre(), event.getCurrentStock(),
+                thresholdFor(event.getReorderThreshold(), event.getGenre()));
+    }
+
+    @TransactionalEventListener
+    public void onGenreThresholdChanged(GenreThresholdChangedEvent event) {
+        if (event.getThreshold() == null) {
+            genreThresholds.remove(event.getGenre());
+        } else {
+            genreThresholds.put(event.getGenre(), event.getThreshold());
+        }
+        // Titles already below the new threshold alert now rather than on their next stock change
+        int threshold = thresholdFor(null, event.getGenre());
+        for (Book book : bookRepository.findByGenreAndReorderThresholdIsNull(event.getGenre())) {
+            evaluate(book.getId(), book.getTitle(), book.getGenre(), book.getStock(), threshold);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<LowStockAlert> getLowStockBooks() {
+        Integer maxBookThreshold = bookRepository.findMaxReorderThreshold();
+        int maxThreshold = Math.max(defaultThreshold,
+                genreThresholds.values().stream().mapToInt(Integer::intValue).max().orElse(0));
+        if (maxBookThreshold != null) {
+            maxThreshold = Math.max(maxThreshold, maxBookThreshold);
+        }
+
+        List<LowStockAlert> lowStock = new ArrayList<>();
+        for (Book book : bookRepository.findByStockLessThanEqualOrderByStockAsc(maxThreshold)) {
+            int threshold = thresholdFor(book.getReorderThreshold(), book.getGenre());
+            if (book.getStock() <= threshold) {
+                lowStock.add(new LowStockAlert(book.getId(), book.getTitle(), book.getGenre(),
+                        book.getStock(), threshold, null));
+            }
+        }
+        return lowStock;
+    }
+
+    public List<LowStockAlert> getRecentAlerts() {
+        synchronized (feed) {
+            return new ArrayList<>(feed);
+        }
+    }
+
+    public Map<String, Integer> getGenreThresholds() {
+        return Collections.unmodifiableMap(genreThresholds);
+    }
+
+    @Transactional
+    public void setBookThreshold(Long bookId, Integer threshold) {
+        checkThreshold(threshold);
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
+        book.setReorderThreshold(threshold);
+        bookRepository.save(book);
+        // Re-evaluate the title against its new threshold once the update commits
+        eventPublisher.publishEvent(new StockChangedEvent(book.getId(), book.getTitle(), book.getGenre(),
+                threshold, book.getStock(), book.getStock()));
+    }
+
+    @Transactional
+    public void setGenreThreshold(String genre, Integer threshold) {
+        checkThreshold(threshold);
+        if (threshold == null) {
+            genreStockThresholdRepository.deleteById(genre);
+        } else {
+            genreStockThresholdRepository.save(new GenreStockThreshold(genre, threshold));
+        }
+        // The in-memory threshold follows once the change commits
+        eventPublisher.publishEvent(new GenreThresholdChangedEvent(genre, threshold));
+    }
+
+    private void checkThreshold(Integer threshold) {
+        if (threshold != null && threshold < 0) {
+            throw new RuntimeException("Threshold must not be negative");
+        }
+    }
+
+    private void evaluate(Long bookId, String title, String genre, int stock, int threshold) {
+        if (stock <= threshold) {
+            if (alerted.add(bookId)) {
+                raise(new LowStockAlert(bookId, title, genre, stock, threshold, LocalDateTime.now()));
+            }
+        } else if (stock > threshold + rearmMargin) {
+            alerted.remove(bookId);
+        }
+    }
+
+    private int thresholdFor(Integer bookThreshold, String genre) {
+        if (bookThreshold != null) {
+            return bookThreshold;
+        }
+        return genreThresholds.getOrDefault(genre, defaultThreshold);
+    }
+
+    private void raise(LowStockAlert alert) {
+        synchronized (feed) {
+            feed.addFirst(alert);
+            while (feed.size() > feedSize) {
+                feed.removeLast();
+            }
+        }
+        eventPublisher.publishEvent(new LowStockAlertEvent(alert));
+    }
+}
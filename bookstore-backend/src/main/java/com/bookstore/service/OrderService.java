@@ -1,25 +1,47 @@
 package com.bookstore.service;
 
 import com.bookstore.dto.BookDTO;
+import com.bookstore.dto.CompactOrder;
+import com.bookstore.dto.CompactOrderItem;
 import com.bookstore.dto.CreateOrderRequest;
+import com.bookstore.dto.FieldSelection;
+import com.bookstore.dto.OrderHistoryPage;
 import com.bookstore.dto.OrderDTO;
 import com.bookstore.dto.OrderItemDTO;
+import com.bookstore.dto.OrderSummary;
+import com.bookstore.event.OrderPlacedEvent;
+import com.bookstore.event.OrderUpdatedEvent;
+import com.bookstore.event.PaymentStatusChangedEvent;
+import com.bookstore.event.StockChangedEvent;
 import com.bookstore.model.*;
 import com.bookstore.repository.BookRepository;
 import com.bookstore.repository.OrderRepository;
 import com.bookstore.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -29,21 +51,27 @@ public class OrderService {
     @Autowired
     private BookRepository bookRepository;
 
-    public List<OrderDTO> getAllOrders() {
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public List<OrderDTO> getAllOrders(FieldSelection fields) {
         return orderRepository.findAll().stream()
-                .map(this::convertToDTO)
+                .map(order -> convertToDTO(order, fields))
                 .collect(Collectors.toList());
     }
 
-    public List<OrderDTO> getOrdersByUser(String username) {
+    public List<OrderDTO> getOrdersByUser(String username, FieldSelection fields) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
         return orderRepository.findByUserOrderByCreatedAtDesc(user).stream()
-                .map(this::convertToDTO)
+                .map(order -> convertToDTO(order, fields))
                 .collect(Collectors.toList());
     }
 
-    public OrderDTO getOrderById(Long id, String username) {
+    public OrderDTO getOrderById(Long id, String username, FieldSelection fields) {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
 
@@ -54,7 +82,58 @@ public class OrderService {
             throw new RuntimeException("Access denied");
         }
 
-        return convertToDTO(order);
+        return convertToDTO(order, fields);
+    }
+
+    // Counters and the newest orders in compact form; cached per user by OrderSummaryCache
+    @Transactional(readOnly = true)
+    public OrderSummary getOrderSummary(Long userId, int recentSize) {
+        OrderRepository.OrderTotals totals = orderRepository.findTotalsByUserId(userId);
+        OrderSummary summary = new OrderSummary();
+        summary.setOrderCount(totals.getOrderCount());
+        summary.setLifetimeSpend(totals.getLifetimeSpend());
+        summary.setLastOrderAt(totals.getLastOrderAt());
+        if (totals.getOrderCount() > 0) {
+            OrderHistoryPage recent = getOrderHistory(userId, null, recentSize);
+            summary.setRecentOrders(recent.getOrders());
+            if (totals.getOrderCount() > recent.getOrders().size()) {
+                summary.setHistoryCursor(recent.getNextCursor());
+            }
+        }
+        return summary;
+    }
+
+    // One page of a user's orders, newest first: one query for the orders and one for their items
+    @Transactional(readOnly = true)
+    public OrderHistoryPage getOrderHistory(Long userId, String cursor, int size) {
+        LocalDateTime createdAt = CURSOR_START;
+        long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isEmpty()) {
+            Cursor after = Cursor.decode(cursor);
+            createdAt = after.createdAt();
+            id = after.id();
+        }
+
+        List<OrderRepository.OrderHeader> headers =
+                orderRepository.findUserOrderPage(userId, createdAt, id, PageRequest.of(0, size));
+        Map<Long, CompactOrder> orders = new LinkedHashMap<>();
+        for (OrderRepository.OrderHeader header : headers) {
+            orders.put(header.getId(), new CompactOrder(header.getId(), header.getCreatedAt(), header.getTotalPrice(),
+                    header.getStatus(), header.getPaymentStatus(), new ArrayList<>()));
+        }
+        if (!orders.isEmpty()) {
+            for (OrderRepository.ItemLine line : orderRepository.findItemLinesByOrderIdIn(orders.keySet())) {
+                orders.get(line.getOrderId()).getItems().add(new CompactOrderItem(line.getBookId(), line.getTitle(),
+                        line.getQuantity(), line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity()))));
+            }
+        }
+
+        String nextCursor = null;
+        if (headers.size() == size) {
+            OrderRepository.OrderHeader last = headers.get(headers.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new OrderHistoryPage(new ArrayList<>(orders.values()), nextCursor);
     }
 
     public OrderDTO createOrder(CreateOrderRequest request, String username) {
@@ -69,12 +148,20 @@ public class OrderService {
         order.setPaymentStatus(Order.PaymentStatus.PENDING);
 
         BigDecimal totalPrice = BigDecimal.ZERO;
+        // Quantities held at checkout are already out of stock and count towards this order
+        Map<Long, Integer> held = stockHoldService.claim(user);
+        Set<Long> bookIds = new TreeSet<>(held.keySet());
+        request.getItems().forEach(itemRequest -> bookIds.add(itemRequest.getBookId()));
+        Map<Long, Book> books = stockHoldService.lockBooks(bookIds);
 
         for (var itemRequest : request.getItems()) {
-            Book book = bookRepository.findById(itemRequest.getBookId())
-                    .orElseThrow(() -> new RuntimeException("Book not found with id: " + itemRequest.getBookId()));
+            Book book = books.get(itemRequest.getBookId());
+            if (book == null) {
+                throw new RuntimeException("Book not found with id: " + itemRequest.getBookId());
+            }
 
-            if (book.getStock() < itemRequest.getQuantity()) {
+            int heldQuantity = Optional.ofNullable(held.remove(book.getId())).orElse(0);
+            if (book.getStock() + heldQuantity < itemRequest.getQuantity()) {
                 throw new RuntimeException("Insufficient stock for book: " + book.getTitle());
             }
 
@@ -87,12 +174,21 @@ public class OrderService {
             order.getOrderItems().add(orderItem);
             totalPrice = totalPrice.add(orderItem.getSubtotal());
 
-            book.setStock(book.getStock() - itemRequest.getQuantity());
+            int previousStock = book.getStock();
+            book.setStock(previousStock + heldQuantity - itemRequest.getQuantity());
             bookRepository.save(book);
+            if (book.getStock() != previousStock) {
+                eventPublisher.publishEvent(new StockChangedEvent(book.getId(), book.getTitle(), book.getGenre(),
+                        book.getReorderThreshold(), previousStock, book.getStock()));
+            }
         }
 
+        // Held books the order left out go back on sale
+        stockHoldService.restock(held);
+
         order.setTotalPrice(totalPrice);
         order = orderRepository.save(order);
+        eventPublisher.publishEvent(OrderPlacedEvent.of(order));
 
         return convertToDTO(order);
     }
@@ -103,6 +199,7 @@ public class OrderService {
 
         order.setStatus(status);
         order = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderUpdatedEvent(order.getId(), order.getUser().getId()));
 
         return convertToDTO(order);
     }
@@ -111,20 +208,30 @@ public class OrderService {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
 
+        Order.PaymentStatus previousStatus = order.getPaymentStatus();
         order.setPaymentStatus(paymentStatus);
         if (paymentStatus == Order.PaymentStatus.PAID) {
             order.setStatus(Order.OrderStatus.PROCESSING);
         }
         order = orderRepository.save(order);
+        eventPublisher.publishEvent(PaymentStatusChangedEvent.of(order, previousStatus));
+        eventPublisher.publishEvent(new OrderUpdatedEvent(order.getId(), order.getUser().getId()));
 
         return convertToDTO(order);
     }
 
     private OrderDTO convertToDTO(Order order) {
+        return convertToDTO(order, FieldSelection.ALL);
+    }
+
+    // The user and the items are lazy: each is only loaded when its fields are requested
+    private OrderDTO convertToDTO(Order order, FieldSelection fields) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
         dto.setUserId(order.getUser().getId());
-        dto.setUsername(order.getUser().getUsername());
+        if (fields.includes("username")) {
+            dto.setUsername(order.getUser().getUsername());
+        }
         dto.setTotalPrice(order.getTotalPrice());
         dto.setStatus(order.getStatus());
         dto.setPaymentStatus(order.getPaymentStatus());
@@ -132,6 +239,9 @@ public class OrderService {
         dto.setPaymentMethod(order.getPaymentMethod());
         dto.setCreatedAt(order.getCreatedAt());
         dto.setUpdatedAt(order.getUpdatedAt());
+        if (!fields.includes("orderItems")) {
+            return dto;
+        }
 
         List<OrderItemDTO> itemDTOs = order.getOrderItems().stream()
                 .map(item -> {
@@ -156,4 +266,21 @@ public class OrderService {
         dto.setOrderItems(itemDTOs);
         return dto;
     }
+
+    // Cursor = createdAt|id of the last order on the previous page
+    private record Cursor(LocalDateTime createdAt, long id) {
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+    }
 }
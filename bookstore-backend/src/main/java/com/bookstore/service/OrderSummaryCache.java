@@ -0,0 +1,52 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.OrderSummary;
+import com.bookstore.event.OrderPlacedEvent;
+import com.bookstore.event.OrderUpdatedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-user order summaries for the profile page, keyed by user id so a hit needs no user
+ * lookup. Concurrent misses for one user share a single load. A placed order or a status
+ * change drops the owner's entry once its transaction commits; the TTL only bounds entries
+ * of users who stop coming back, and the size cap bounds memory.
+ */
+@Service
+public class OrderSummaryCache {
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${app.orders.summary-recent:5}")
+    private int recentSize;
+
+    @Value("${app.orders.summary-ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${app.orders.summary-cache-size:10000}")
+    private int cacheSize;
+
+    private CoalescingCache<Long, OrderSummary> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new CoalescingCache<>(ttlMs, cacheSize);
+    }
+
+    public OrderSummary get(Long userId) {
+        return cache.get(userId, id -> orderService.getOrderSummary(id, recentSize));
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        cache.invalidate(event.getUserId());
+    }
+
+    @TransactionalEventListener
+    public void onOrderUpdated(OrderUpdatedEvent event) {
+        cache.invalidate(event.getUserId());
+    }
+}
@@ -0,0 +1,283 @@
+package com.bookstore.service;
+
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.event.OrderLineSnapshot;
+import com.bookstore.event.OrderPlacedEvent;
+import com.bookstore.event.ReviewPostedEvent;
+import com.bookstore.model.BookPopularity;
+import com.bookstore.repository.BookPopularityRepository;
+import com.bookstore.repository.OrderRepository;
+import com.bookstore.repository.ReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Popularity ranking of the catalog. A book's score is its units sold plus weighted new reviews
+ * (a review counts rating/5), each decaying exponentially with the configured half-life. Scores
+ * are kept relative to a fixed epoch: an event at time t adds its weight times 2^((t - epoch) /
+ * half-life), so decay never has to be applied to stored scores and the ranking only changes
+ * when an event arrives. Books are kept sorted by score; the epoch is moved forward now and then
+ * before the factors grow too large. Dirty scores are written to book_popularity in batches; the
+ * table is rebuilt from order and review history when it is empty.
+ */
+@Service
+public class PopularityIndex {
+    private static final Comparator<Entry> BY_SCORE = Comparator.comparingDouble((Entry entry) -> entry.score)
+            .reversed()
+            .thenComparingLong(entry -> entry.bookId);
+
+    // Contributions older than this many half-lives are below 0.1% and left out of a rebuild
+    private static final int HISTORY_HALF_LIVES = 10;
+    // Rebase once growth factors pass 2^32
+    private static final int REBASE_HALF_LIVES = 32;
+
+    @Autowired
+    private BookPopularityRepository bookPopularityRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.popularity.half-life-hours:168}")
+    private double halfLifeHours;
+
+    @Value("${app.popularity.review-weight:3}")
+    private double reviewWeight;
+
+    @Value("${app.popularity.persist-batch-size:500}")
+    private int persistBatchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(BY_SCORE);
+    private volatile long epochMs = System.currentTimeMillis();
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<BookPopularity> rows = bookPopularityRepository.findAll();
+        if (rows.isEmpty()) {
+            rebuildFromHistory();
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (BookPopularity row : rows) {
+                double growth = growth(toMillis(row.getScoredAt()));
+                add(row.getBookId(), row.getSalesScore() * growth, row.getReviewScore() * growth);
+            }
+            // Loaded values are already stored
+            dirty.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        lock.writeLock().lock();
+        try {
+            double growth = growth(System.currentTimeMillis());
+            for (OrderLineSnapshot line : event.getLines()) {
+                add(line.getBookId(), line.getQuantity() * growth, 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onReviewPosted(ReviewPostedEvent event) {
+        lock.writeLock().lock();
+        try {
+            add(event.getBookId(), 0, event.getRating() / 5.0 * growth(System.currentTimeMillis()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (!event.isDeleted()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(event.getBookId());
+            if (entry != null) {
+                ranking.remove(entry);
+                dirty.remove(entry.bookId);
+                removed.add(entry.bookId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of every book with a score, most popular first; books without one are not listed
+    public List<Long> ranked() {
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(ranking.size());
+            for (Entry entry : ranking) {
+                ids.add(entry.bookId);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.popularity.persist-interval-ms:60000}")
+    public void persist() {
+        long now = System.currentTimeMillis();
+        if (now - epochMs > REBASE_HALF_LIVES * halfLifeMs()) {
+            rebase(now);
+        }
+
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        List<BookPopularity> rows = new ArrayList<>(ids.size());
+        LocalDateTime scoredAt = LocalDateTime.now();
+        lock.readLock().lock();
+        try {
+            // Stored as decayed to scoredAt, so the table reads the same whatever the epoch
+            double decay = 1 / growth(now);
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    rows.add(new BookPopularity(id, entry.sales * decay, entry.reviews * decay, scoredAt));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Long> deletions = new ArrayList<>(removed);
+        removed.removeAll(deletions);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < rows.size(); from += persistBatchSize) {
+            List<BookPopularity> batch = rows.subList(from, Math.min(from + persistBatchSize, rows.size()));
+            try {
+                transaction.executeWithoutResult(status -> bookPopularityRepository.saveAll(batch));
+            } catch (RuntimeException e) {
+                // Written with the next batch run
+                batch.forEach(row -> dirty.add(row.getBookId()));
+            }
+        }
+        if (!deletions.isEmpty()) {
+            try {
+                transaction.executeWithoutResult(status -> bookPopularityRepository.deleteAllByIdInBatch(deletions));
+            } catch (RuntimeException e) {
+                removed.addAll(deletions);
+            }
+        }
+    }
+
+    private void rebuildFromHistory() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes((long) (HISTORY_HALF_LIVES * halfLifeHours * 60));
+        List<OrderRepository.BookSale> sales = orderRepository.findBookSalesSince(since);
+        List<ReviewRepository.BookRating> ratings = reviewRepository.findRatingsSince(since);
+        lock.writeLock().lock();
+        try {
+            for (OrderRepository.BookSale sale : sales) {
+                add(sale.getBookId(), sale.getQuantity() * growth(toMillis(sale.getCreatedAt())), 0);
+            }
+            for (ReviewRepository.BookRating rating : ratings) {
+                add(rating.getBookId(), 0, rating.getRating() / 5.0 * growth(toMillis(rating.getCreatedAt())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebase(long now) {
+        lock.writeLock().lock();
+        try {
+            double decay = 1 / growth(now);
+            ranking.clear();
+            entries.values().removeIf(entry -> {
+                entry.sales *= decay;
+                entry.reviews *= decay;
+                entry.score *= decay;
+                // Nothing left worth ranking; the stored row goes too
+                if (entry.score < 1e-6) {
+                    removed.add(entry.bookId);
+                    return true;
+                }
+                ranking.add(entry);
+                return false;
+            });
+            epochMs = now;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock; sales and reviews are epoch-relative
+    private void add(Long bookId, double sales, double reviews) {
+        Entry entry = entries.get(bookId);
+        if (entry == null) {
+            entry = new Entry(bookId);
+            entries.put(bookId, entry);
+        } else {
+            ranking.remove(entry);
+        }
+        entry.sales += sales;
+        entry.reviews += reviews;
+        entry.score = entry.sales + reviewWeight * entry.reviews;
+        ranking.add(entry);
+        dirty.add(bookId);
+        removed.remove(bookId);
+    }
+
+    private double growth(long timeMs) {
+        return Math.pow(2, (timeMs - epochMs) / halfLifeMs());
+    }
+
+    private double halfLifeMs() {
+        return halfLifeHours * 3_600_000;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Entry {
+        final long bookId;
+        double sales;
+        double reviews;
+        double score;
+
+        Entry(long bookId) {
+            this.bookId = bookId;
+        }
+    }
+}
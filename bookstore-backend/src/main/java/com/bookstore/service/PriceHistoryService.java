@@ -0,0 +1,215 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.BookPriceHistory;
+import com.bookstore.dto.PricePoint;
+import com.bookstore.event.BookChangedEvent;
+import com.bookstore.event.PriceChange;
+import com.bookstore.event.PricesChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Price history of every book. Each price a book takes on is appended to price_history in the
+ * transaction that sets it (in JDBC batches for bulk repricing), and mirrored in memory as two
+ * parallel primitive arrays per book, change times and prices in cents, ordered by time. Range
+ * queries are two binary searches and read no database. Readers take an immutable view of
+ * (arrays, length); appends write past the published length and then publish a longer view, so
+ * no lock is needed on the read path.
+ */
+@Service
+public class PriceHistoryService {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.prices.history-batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, Series> series = new ConcurrentHashMap<>();
+
+    // Until set, readers go to the database instead of the partly built series
+    private volatile boolean historyLoaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // Books from before the history existed start out at their current price
+        jdbcTemplate.update("INSERT INTO price_history (book_id, price, changed_at) "
+                + "SELECT b.id, b.price, b.created_at FROM books b "
+                + "WHERE NOT EXISTS (SELECT 1 FROM price_history h WHERE h.book_id = b.id)");
+
+        Map<Long, Series> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT h.book_id, h.price, h.changed_at FROM price_history h "
+                + "JOIN books b ON b.id = h.book_id ORDER BY h.book_id, h.changed_at, h.id", row -> {
+            loaded.computeIfAbsent(row.getLong(1), key -> new Series())
+                    .append(toMillis(row.getTimestamp(3).toLocalDateTime()), toCents(row.getBigDecimal(2)));
+        });
+        // Changes committed while loading may already have started a series; they are replayed on top
+        loaded.forEach((bookId, fresh) -> series.merge(bookId, fresh, (early, loadedSeries) -> {
+            View view = early.view;
+            for (int i = 0; i < view.length; i++) {
+                loadedSeries.append(view.times[i], view.cents[i]);
+            }
+            return loadedSeries;
+        }));
+        historyLoaded = true;
+    }
+
+    // Appends the new prices in the caller's transaction; book id -> price
+    public void record(Map<Long, BigDecimal> prices) {
+        if (prices.isEmpty()) {
+            return;
+        }
+        LocalDateTime changedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        List<PriceChange> changes = new ArrayList<>(prices.size());
+        prices.forEach((bookId, price) -> changes.add(new PriceChange(bookId, price, changedAt)));
+        jdbcTemplate.batchUpdate("INSERT INTO price_history (book_id, price, changed_at) VALUES (?, ?, ?)",
+                changes, batchSize, (statement, change) -> {
+                    statement.setLong(1, change.getBookId());
+                    statement.setBigDecimal(2, change.getPrice());
+                    statement.setTimestamp(3, Timestamp.valueOf(change.getChangedAt()));
+                });
+        eventPublisher.publishEvent(new PricesChangedEvent(changes));
+    }
+
+    @TransactionalEventListener
+    public void onPricesChanged(PricesChangedEvent event) {
+        for (PriceChange change : event.getChanges()) {
+            series.compute(change.getBookId(), (key, bookSeries) -> {
+                Series target = bookSeries != null ? bookSeries : new Series();
+                target.append(toMillis(change.getChangedAt()), toCents(change.getPrice()));
+                return target;
+            });
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.isDeleted()) {
+            series.remove(event.getBookId());
+        }
+    }
+
+    // Prices between from and to (either may be null), plus the one already in effect at from
+    public BookPriceHistory getHistory(Long bookId, LocalDateTime from, LocalDateTime to) {
+        Series bookSeries = historyLoaded ? series.get(bookId) : readSeries(bookId);
+        if (bookSeries == null) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+        View view = bookSeries.view;
+        int start = from == null ? 0 : Math.max(upperBound(view, toMillis(from)) - 1, 0);
+        int end = to == null ? view.length : upperBound(view, toMillis(to));
+
+        BookPriceHistory history = new BookPriceHistory();
+        history.setBookId(bookId);
+        for (int i = start; i < end; i++) {
+            history.getPoints().add(new PricePoint(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(view.times[i]), ZoneId.systemDefault()),
+                    BigDecimal.valueOf(view.cents[i], 2)));
+        }
+        return history;
+    }
+
+    // One book's series straight from the database, for requests served before the history is loaded
+    private Series readSeries(Long bookId) {
+        Series bookSeries = new Series();
+        jdbcTemplate.query("SELECT h.price, h.changed_at FROM price_history h JOIN books b ON b.id = h.book_id "
+                + "WHERE h.book_id = ? ORDER BY h.changed_at, h.id", row -> {
+            bookSeries.append(toMillis(row.getTimestamp(2).toLocalDateTime()), toCents(row.getBigDecimal(1)));
+        }, bookId);
+        if (bookSeries.view.length == 0) {
+            // Not backfilled yet: the book has only ever had its current price
+            jdbcTemplate.query("SELECT b.price, b.created_at FROM books b WHERE b.id = ?", row -> {
+                bookSeries.append(toMillis(row.getTimestamp(2).toLocalDateTime()), toCents(row.getBigDecimal(1)));
+            }, bookId);
+        }
+        return bookSeries.view.length == 0 ? null : bookSeries;
+    }
+
+    // Index of the first change after time, or length if there is none
+    private static int upperBound(View view, long time) {
+        int low = 0;
+        int high = view.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (view.times[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Series {
+        volatile View view = new View(new long[4], new long[4], 0);
+
+        synchronized void append(long time, long cents) {
+            View current = view;
+            int length = current.length;
+            // Same time and price: the change is already here (loaded and replayed from an event)
+            for (int i = length - 1; i >= 0 && current.times[i] >= time; i--) {
+                if (current.times[i] == time && current.cents[i] == cents) {
+                    return;
+                }
+            }
+            if (length == 0 || current.times[length - 1] <= time) {
+                if (length < current.times.length) {
+                    current.times[length] = time;
+                    current.cents[length] = cents;
+                    view = new View(current.times, current.cents, length + 1);
+                } else {
+                    long[] times = Arrays.copyOf(current.times, length * 2);
+                    long[] prices = Arrays.copyOf(current.cents, length * 2);
+                    times[length] = time;
+                    prices[length] = cents;
+                    view = new View(times, prices, length + 1);
+                }
+                return;
+            }
+            // Committed out of time order: copy, since readers may be scanning the slots that shift
+            int at = upperBound(current, time);
+            long[] times = new long[Math.max(length * 2, 4)];
+            long[] prices = new long[times.length];
+            System.arraycopy(current.times, 0, times, 0, at);
+            System.arraycopy(current.cents, 0, prices, 0, at);
+            times[at] = time;
+            prices[at] = cents;
+            System.arraycopy(current.times, at, times, at + 1, length - at);
+            System.arraycopy(current.cents, at, prices, at + 1, length - at);
+            view = new View(times, prices, length + 1);
+        }
+    }
+
+    private record View(long[] times, long[] cents, int length) {
+    }
+}
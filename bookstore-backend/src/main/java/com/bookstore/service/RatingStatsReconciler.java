@@ -0,0 +1,67 @@
+package com.bookstore.service;
+
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.ReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies the rating counters kept on each book against the reviews table and recomputes
+ * the ones that drifted (reviews written outside ReviewService, or counters that were just
+ * added to an existing database). Runs at startup and then on a nightly schedule.
+ */
+@Service
+@Transactional
+public class RatingStatsReconciler {
+    private static final long[] NO_REVIEWS = new long[7];
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.ratings.reconcile-cron:0 15 4 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    // Returns the ids of the books whose counters were repaired
+    public List<Long> reconcile() {
+        // Per book: count, sum, then the count for each star value
+        Map<Long, long[]> expected = new HashMap<>();
+        for (ReviewRepository.RatingCount row : reviewRepository.countByBookAndRating()) {
+            long[] stats = expected.computeIfAbsent(row.getBookId(), id -> new long[7]);
+            stats[0] += row.getCount();
+            stats[1] += row.getCount() * row.getRating();
+            if (row.getRating() >= 1 && row.getRating() <= 5) {
+                stats[1 + row.getRating()] += row.getCount();
+            }
+        }
+
+        List<Long> repaired = new ArrayList<>();
+        for (BookRepository.RatingStats actual : bookRepository.findAllRatingStats()) {
+            long[] stats = expected.getOrDefault(actual.getId(), NO_REVIEWS);
+            if (stats[0] != actual.getRatingCount() || stats[1] != actual.getRatingSum()
+                    || stats[2] != actual.getRating1Count() || stats[3] != actual.getRating2Count()
+                    || stats[4] != actual.getRating3Count() || stats[5] != actual.getRating4Count()
+                    || stats[6] != actual.getRating5Count()) {
+                // Recount in a single statement rather than trusting the snapshot above,
+                // which may already be behind a review committed since
+                bookRepository.recomputeRatingStats(actual.getId());
+                repaired.add(actual.getId());
+            }
+        }
+        return repaired;
+    }
+}
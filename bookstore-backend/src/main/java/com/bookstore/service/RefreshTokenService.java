@@ -0,0 +1,98 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.JwtResponse;
+import com.bookstore.model.RefreshToken;
+import com.bookstore.model.User;
+import com.bookstore.repository.RefreshTokenRepository;
+import com.bookstore.repository.UserRepository;
+import com.bookstore.security.JwtTokenProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+@Service
+@Transactional
+public class RefreshTokenService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private long refreshExpirationMs;
+
+    public String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(userRepository.getReferenceById(userId));
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpirationMs * 1_000_000));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    // Rotates the refresh token: the presented one is revoked and a new pair is returned
+    @Transactional(noRollbackFor = RuntimeException.class)
+    public JwtResponse refresh(String rawToken) {
+        // Locked: a concurrent refresh with the same token waits here and then finds it revoked
+        RefreshToken refreshToken = refreshTokenRepository.lockByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        User user = refreshToken.getUser();
+
+        if (refreshToken.isRevoked()) {
+            // A rotated-out token came back: assume it was stolen and end every session of this user
+            refreshTokenRepository.revokeAllByUserId(user.getId());
+            throw new RuntimeException("Invalid refresh token");
+        }
+        if (refreshToken.getExpiresAt().isBefore(LocalDateTime.now()) || !user.isEnabled()) {
+            throw new RuntimeException("Refresh token expired");
+        }
+
+        refreshToken.setRevoked(true);
+        refreshTokenRepository.save(refreshToken);
+
+        String accessToken = tokenProvider.generateToken(UserDetailsImpl.build(user));
+        return new JwtResponse(accessToken, "Bearer", user.getId(), user.getUsername(),
+                user.getEmail(), user.getRole().name(), issue(user.getId()));
+    }
+
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken)).ifPresent(refreshToken -> {
+            refreshToken.setRevoked(true);
+            refreshTokenRepository.save(refreshToken);
+        });
+    }
+
+    @Scheduled(cron = "${jwt.refresh-purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.ModerationJob;
+import com.bookstore.dto.ReviewModerationRequest;
+import com.bookstore.dto.ReviewModerationRequest.Action;
+import com.bookstore.event.ReviewsChangedEvent;
+import com.bookstore.model.Review;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.ReviewRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes, hides or unhides reviews in bulk. Matching ids are scanned in primary-key chunks
+ * outside any write transaction; each chunk then gets its own short transaction that locks only
+ * that chunk's rows, runs one set-based statement and one rating-counter update per affected
+ * book. Live review reads never wait behind more than a single chunk. Jobs run one at a time on
+ * a background thread and are polled for progress.
+ */
+@Service
+public class ReviewModerationService implements DisposableBean {
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.moderation.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.moderation.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    private final Map<String, ModerationJob> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "review-moderation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ModerationJob start(ReviewModerationRequest request) {
+        String pattern = request.getCommentContains() == null || request.getCommentContains().isBlank()
+                ? null : "%" + escapeLike(request.getCommentContains().toLowerCase()) + "%";
+        if (request.getUserId() == null && request.getBookId() == null && request.getFrom() == null
+                && request.getTo() == null && pattern == null) {
+            throw new RuntimeException("At least one filter is required");
+        }
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+
+        // Only reviews whose state the action would change
+        Boolean hidden = switch (request.getAction()) {
+            case DELETE -> null;
+            case HIDE -> false;
+            case UNHIDE -> true;
+        };
+
+        ModerationJob job = new ModerationJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setAction(request.getAction());
+        job.setStartedAt(LocalDateTime.now());
+        job.setMatched(reviewRepository.countForModeration(request.getUserId(), request.getBookId(),
+                request.getFrom(), request.getTo(), pattern, hidden));
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        jobs.values().removeIf(old -> old.getFinishedAt() != null && old.getFinishedAt().isBefore(cutoff));
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, request, pattern, hidden));
+        return job;
+    }
+
+    public ModerationJob getJob(String id) {
+        ModerationJob job = jobs.get(id);
+        if (job == null) {
+            throw new RuntimeException("Moderation job not found: " + id);
+        }
+        return job;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void run(ModerationJob job, ReviewModerationRequest request, String pattern, Boolean hidden) {
+        job.setStatus(ModerationJob.Status.RUNNING);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Set<Long> books = new HashSet<>();
+        long afterId = 0;
+        try {
+            while (true) {
+                List<Long> ids = reviewRepository.findIdsForModeration(afterId, request.getUserId(), request.getBookId(),
+                        request.getFrom(), request.getTo(), pattern, hidden, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+
+                Integer changed = transaction.execute(status -> applyChunk(ids, request.getAction(), books));
+                job.setProcessed(job.getProcessed() + changed);
+                job.setChunks(job.getChunks() + 1);
+                job.setBooksAffected(books.size());
+
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                if (chunkPauseMs > 0) {
+                    Thread.sleep(chunkPauseMs);
+                }
+            }
+            job.setStatus(ModerationJob.Status.COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.setError("Interrupted");
+            job.setStatus(ModerationJob.Status.FAILED);
+        } catch (RuntimeException e) {
+            job.setError(e.getMessage());
+            job.setStatus(ModerationJob.Status.FAILED);
+        }
+        job.setFinishedAt(LocalDateTime.now());
+    }
+
+    private int applyChunk(List<Long> ids, Action action, Set<Long> books) {
+        // Re-read under lock: a review edited or moderated since the scan is judged on its current state
+        List<Long> targets = new ArrayList<>();
+        Map<Long, int[]> perBook = new HashMap<>();
+        for (Review review : reviewRepository.lockAllByIdIn(ids)) {
+            boolean visible = !review.isHidden();
+            if ((action == Action.HIDE && !visible) || (action == Action.UNHIDE && visible)) {
+                continue;
+            }
+            targets.add(review.getId());
+            // Hidden reviews are not in the counters, so deleting one leaves them alone
+            if (action != Action.DELETE || visible) {
+                int delta = action == Action.UNHIDE ? 1 : -1;
+                perBook.computeIfAbsent(review.getBook().getId(), id -> new int[6])[review.getRating()] += delta;
+            }
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+
+        switch (action) {
+            case DELETE -> reviewRepository.deleteAllByIdIn(targets);
+            case HIDE -> reviewRepository.setHiddenByIdIn(targets, true);
+            case UNHIDE -> reviewRepository.setHiddenByIdIn(targets, false);
+        }
+        perBook.forEach((bookId, perStar) -> {
+            bookRepository.applyRatingDelta(bookId, perStar);
+            eventPublisher.publishEvent(new ReviewsChangedEvent(bookId));
+        });
+        books.addAll(perBook.keySet());
+        return targets.size();
+    }
+
+    // Backslash-escapes LIKE wildcards so the filter text matches literally
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
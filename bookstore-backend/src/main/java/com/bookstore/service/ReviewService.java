@@ -1,20 +1,28 @@
 package com.bookstore.service;
 
 import com.bookstore.dto.CreateReviewRequest;
+import com.bookstore.dto.ReviewPage;
 import com.bookstore.dto.ReviewDTO;
-import com.bookstore.model.Book;
+import com.bookstore.event.ReviewPostedEvent;
+import com.bookstore.event.ReviewsChangedEvent;
 import com.bookstore.model.Review;
 import com.bookstore.model.User;
 import com.bookstore.repository.BookRepository;
 import com.bookstore.repository.ReviewRepository;
 import com.bookstore.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -28,77 +36,155 @@ public class ReviewService {
     @Autowired
     private UserRepository userRepository;
 
-    public List<ReviewDTO> getReviewsByBook(Long bookId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
-        return reviewRepository.findByBookOrderByCreatedAtDesc(book).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public enum Sort {
+        NEWEST, HIGHEST, LOWEST
     }
 
-    public ReviewDTO createReview(CreateReviewRequest request, String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Transactional(readOnly = true)
+    public ReviewPage getReviewsByBook(Long bookId, String cursor, int size, Sort sort) {
+        if (!bookRepository.existsById(bookId)) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+
+        int rating = sort == Sort.LOWEST ? 0 : 6;
+        LocalDateTime createdAt = CURSOR_START;
+        long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isEmpty()) {
+            Cursor after = Cursor.decode(cursor);
+            rating = after.rating();
+            createdAt = after.createdAt();
+            id = after.id();
+        }
+
+        Pageable page = PageRequest.of(0, size);
+        List<ReviewDTO> reviews = switch (sort) {
+            case NEWEST -> reviewRepository.findNewestPage(bookId, createdAt, id, page);
+            case HIGHEST -> reviewRepository.findHighestRatedPage(bookId, rating, createdAt, id, page);
+            case LOWEST -> reviewRepository.findLowestRatedPage(bookId, rating, createdAt, id, page);
+        };
+        return toPage(reviews, size);
+    }
 
-        Book book = bookRepository.findById(request.getBookId())
-                .orElseThrow(() -> new RuntimeException("Book not found with id: " + request.getBookId()));
+    @Transactional(readOnly = true)
+    public ReviewPage getReviewsByUser(Long userId, String cursor, int size) {
+        LocalDateTime createdAt = CURSOR_START;
+        long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isEmpty()) {
+            Cursor after = Cursor.decode(cursor);
+            createdAt = after.createdAt();
+            id = after.id();
+        }
+        return toPage(reviewRepository.findUserPage(userId, createdAt, id, PageRequest.of(0, size)), size);
+    }
 
-        if (reviewRepository.existsByUserAndBook(user, book)) {
-            throw new RuntimeException("You have already reviewed this book");
+    public ReviewDTO createReview(CreateReviewRequest request, UserDetailsImpl principal) {
+        if (!bookRepository.existsById(request.getBookId())) {
+            throw new RuntimeException("Book not found with id: " + request.getBookId());
         }
 
         Review review = new Review();
-        review.setUser(user);
-        review.setBook(book);
+        review.setUser(userRepository.getReferenceById(principal.getId()));
+        review.setBook(bookRepository.getReferenceById(request.getBookId()));
         review.setRating(request.getRating());
         review.setComment(request.getComment());
 
-        review = reviewRepository.save(review);
-        return convertToDTO(review);
+        // uk_reviews_user_book rejects a second review, including one racing this insert
+        try {
+            review = reviewRepository.saveAndFlush(review);
+        } catch (DataIntegrityViolationException e) {
+            // Anything else, such as a user or book deleted meanwhile, is not a duplicate
+            if (e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase().contains("uk_reviews_user_book")) {
+                throw new RuntimeException("You have already reviewed this book");
+            }
+            throw e;
+        }
+        bookRepository.applyRatingDelta(request.getBookId(), review.getRating(), 0);
+        eventPublisher.publishEvent(new ReviewsChangedEvent(request.getBookId()));
+        eventPublisher.publishEvent(new ReviewPostedEvent(request.getBookId(), review.getRating()));
+        return convertToDTO(review, principal.getUsername());
     }
 
-    public ReviewDTO updateReview(Long id, CreateReviewRequest request, String username) {
-        Review review = reviewRepository.findById(id)
+    public ReviewDTO updateReview(Long id, CreateReviewRequest request, UserDetailsImpl principal) {
+        Review review = reviewRepository.lockById(id)
                 .orElseThrow(() -> new RuntimeException("Review not found with id: " + id));
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        if (!review.getUser().getId().equals(user.getId())) {
+        if (!review.getUser().getId().equals(principal.getId())) {
             throw new RuntimeException("You can only update your own reviews");
         }
 
+        int previousRating = review.getRating();
         review.setRating(request.getRating());
         review.setComment(request.getComment());
 
         review = reviewRepository.save(review);
-        return convertToDTO(review);
+        if (review.getRating() != previousRating && !review.isHidden()) {
+            bookRepository.applyRatingDelta(review.getBook().getId(), review.getRating(), previousRating);
+        }
+        eventPublisher.publishEvent(new ReviewsChangedEvent(review.getBook().getId()));
+        return convertToDTO(review, principal.getUsername());
     }
 
-    public void deleteReview(Long id, String username) {
-        Review review = reviewRepository.findById(id)
+    public void deleteReview(Long id, UserDetailsImpl principal) {
+        Review review = reviewRepository.lockById(id)
                 .orElseThrow(() -> new RuntimeException("Review not found with id: " + id));
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        if (!review.getUser().getId().equals(user.getId()) && !user.getRole().equals(User.Role.ADMIN)) {
+        boolean admin = principal.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority().equals("ROLE_" + User.Role.ADMIN.name()));
+        if (!review.getUser().getId().equals(principal.getId()) && !admin) {
             throw new RuntimeException("Access denied");
         }
 
         reviewRepository.delete(review);
+        if (!review.isHidden()) {
+            bookRepository.applyRatingDelta(review.getBook().getId(), 0, review.getRating());
+        }
+        eventPublisher.publishEvent(new ReviewsChangedEvent(review.getBook().getId()));
+    }
+
+    private static ReviewPage toPage(List<ReviewDTO> reviews, int size) {
+        String nextCursor = null;
+        if (reviews.size() == size) {
+            ReviewDTO last = reviews.get(reviews.size() - 1);
+            nextCursor = new Cursor(last.getRating(), last.getCreatedAt(), last.getId()).encode();
+        }
+        return new ReviewPage(reviews, nextCursor);
+    }
+
+    // Cursor = rating|createdAt|id of the last review on the previous page
+    private record Cursor(int rating, LocalDateTime createdAt, long id) {
+        String encode() {
+            String raw = rating + "|" + createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                return new Cursor(Integer.parseInt(parts[0]), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
     }
 
-    private ReviewDTO convertToDTO(Review review) {
+    // Only called for the principal's own reviews, so the user row is never loaded
+    private ReviewDTO convertToDTO(Review review, String username) {
         ReviewDTO dto = new ReviewDTO();
         dto.setId(review.getId());
         dto.setUserId(review.getUser().getId());
-        dto.setUsername(review.getUser().getUsername());
+        dto.setUsername(username);
         dto.setBookId(review.getBook().getId());
         dto.setRating(review.getRating());
         dto.setComment(review.getComment());
         dto.setCreatedAt(review.getCreatedAt());
         dto.setUpdatedAt(review.getUpdatedAt());
+        dto.setHidden(review.isHidden());
         return dto;
     }
 }
@@ -0,0 +1,56 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.BookDTO;
+import com.bookstore.dto.ReviewSummary;
+import com.bookstore.event.ReviewsChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-book review summaries for public product pages. Concurrent misses on one book wait for a
+ * single load instead of each hitting the database. Review writes drop the book's entry once
+ * their transaction commits; the TTL only bounds how long counters repaired by the reconciler
+ * can stay stale.
+ */
+@Service
+public class ReviewSummaryCache {
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Value("${app.reviews.summary-size:5}")
+    private int summarySize;
+
+    @Value("${app.reviews.summary-ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${app.reviews.summary-cache-size:10000}")
+    private int cacheSize;
+
+    private CoalescingCache<Long, ReviewSummary> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new CoalescingCache<>(ttlMs, cacheSize);
+    }
+
+    public ReviewSummary get(Long bookId) {
+        return cache.get(bookId, this::load);
+    }
+
+    @TransactionalEventListener
+    public void onReviewsChanged(ReviewsChangedEvent event) {
+        cache.invalidate(event.getBookId());
+    }
+
+    private ReviewSummary load(Long bookId) {
+        BookDTO book = bookService.getBookById(bookId);
+        return new ReviewSummary(bookId, book.getAverageRating(), book.getTotalReviews(), book.getRatingHistogram(),
+                reviewService.getReviewsByBook(bookId, null, summarySize, ReviewService.Sort.NEWEST).getReviews());
+    }
+}
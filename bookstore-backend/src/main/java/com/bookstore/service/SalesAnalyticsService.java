@@ -0,0 +1,167 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.SalesAnalyticsRow;
+import com.bookstore.event.OrderLineSnapshot;
+import com.bookstore.event.OrderPlacedEvent;
+import com.bookstore.event.PaymentStatusChangedEvent;
+import com.bookstore.model.Order;
+import com.bookstore.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class SalesAnalyticsService {
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private volatile SalesCube cube = new SalesCube(LocalDate.now());
+
+    // Events that arrive while the cube is being loaded, replayed onto it once the scan is done;
+    // null once loaded. Guarded by loadLock
+    private final Object loadLock = new Object();
+    private List<Object> pending = new ArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        Long maxOrderId = orderRepository.findMaxOrderId();
+        long upToOrderId = maxOrderId != null ? maxOrderId : 0;
+        LocalDateTime earliest = orderRepository.findEarliestOrderDate();
+        SalesCube loaded = new SalesCube(earliest != null ? earliest.toLocalDate() : LocalDate.now());
+        // Orders the scan saw, and those it saw as paid, to reconcile events that raced with it. An id
+        // at or below the max can still be missing: its order committed after the snapshot was taken
+        BitSet ordersSeen = new BitSet();
+        BitSet paidSeen = new BitSet();
+
+        try {
+            long afterId = 0;
+            List<OrderRepository.SalesLine> chunk;
+            do {
+                chunk = orderRepository.findSalesLinesAfter(afterId, upToOrderId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+                for (OrderRepository.SalesLine line : chunk) {
+                    LocalDate day = line.getCreatedAt().toLocalDate();
+                    BigDecimal revenue = line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+                    loaded.record(line.getGenre(), line.getAuthor(), day, SalesCube.Measure.ORDERED,
+                            line.getQuantity(), revenue);
+                    ordersSeen.set(Math.toIntExact(line.getOrderId()));
+                    if (line.getPaymentStatus() == Order.PaymentStatus.PAID) {
+                        loaded.record(line.getGenre(), line.getAuthor(), day, SalesCube.Measure.PAID,
+                                line.getQuantity(), revenue);
+                        paidSeen.set(Math.toIntExact(line.getOrderId()));
+                    }
+                    afterId = line.getId();
+                }
+            } while (chunk.size() == LOAD_CHUNK_SIZE);
+        } catch (RuntimeException e) {
+            // Keep counting from the events rather than buffering forever
+            replay(cube, new BitSet(), new BitSet());
+            throw e;
+        }
+        replay(loaded, ordersSeen, paidSeen);
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        synchronized (loadLock) {
+            if (pending != null) {
+                pending.add(event);
+                return;
+            }
+        }
+        apply(cube, event);
+    }
+
+    @TransactionalEventListener
+    public void onPaymentStatusChanged(PaymentStatusChangedEvent event) {
+        synchronized (loadLock) {
+            if (pending != null) {
+                pending.add(event);
+                return;
+            }
+        }
+        apply(cube, event);
+    }
+
+    // Publishes target as the live cube with the buffered events applied. Orders in ordersSeen were
+    // scanned: their placement is already counted, and only a payment status that ended up different
+    // from what the scan saw is corrected. Events of every other order are applied as they come
+    private void replay(SalesCube target, BitSet ordersSeen, BitSet paidSeen) {
+        synchronized (loadLock) {
+            Map<Long, PaymentStatusChangedEvent> lastScannedChange = new LinkedHashMap<>();
+            for (Object event : pending) {
+                if (event instanceof OrderPlacedEvent placed) {
+                    if (!ordersSeen.get(Math.toIntExact(placed.getOrderId()))) {
+                        apply(target, placed);
+                    }
+                } else {
+                    PaymentStatusChangedEvent changed = (PaymentStatusChangedEvent) event;
+                    if (!ordersSeen.get(Math.toIntExact(changed.getOrderId()))) {
+                        apply(target, changed);
+                    } else {
+                        lastScannedChange.put(changed.getOrderId(), changed);
+                    }
+                }
+            }
+            for (PaymentStatusChangedEvent changed : lastScannedChange.values()) {
+                boolean wasPaid = paidSeen.get(Math.toIntExact(changed.getOrderId()));
+                boolean isPaid = changed.getCurrentStatus() == Order.PaymentStatus.PAID;
+                if (wasPaid != isPaid) {
+                    recordLines(target, changed.getLines(), changed.getCreatedAt().toLocalDate(),
+                            SalesCube.Measure.PAID, isPaid ? 1 : -1);
+                }
+            }
+            cube = target;
+            pending = null;
+        }
+    }
+
+    private void apply(SalesCube target, OrderPlacedEvent event) {
+        LocalDate day = event.getCreatedAt().toLocalDate();
+        recordLines(target, event.getLines(), day, SalesCube.Measure.ORDERED, 1);
+        if (event.getPaymentStatus() == Order.PaymentStatus.PAID) {
+            recordLines(target, event.getLines(), day, SalesCube.Measure.PAID, 1);
+        }
+    }
+
+    private void apply(SalesCube target, PaymentStatusChangedEvent event) {
+        boolean wasPaid = event.getPreviousStatus() == Order.PaymentStatus.PAID;
+        boolean isPaid = event.getCurrentStatus() == Order.PaymentStatus.PAID;
+        if (wasPaid != isPaid) {
+            recordLines(target, event.getLines(), event.getCreatedAt().toLocalDate(),
+                    SalesCube.Measure.PAID, isPaid ? 1 : -1);
+        }
+    }
+
+    public List<SalesAnalyticsRow> query(String genre, String author, LocalDate from, LocalDate to,
+                                         SalesCube.GroupBy groupBy) {
+        return cube.query(genre, author, from, to, groupBy);
+    }
+
+    public SalesCube getCube() {
+        return cube;
+    }
+
+    private static void recordLines(SalesCube target, List<OrderLineSnapshot> lines, LocalDate day,
+                                    SalesCube.Measure measure, int sign) {
+        for (OrderLineSnapshot line : lines) {
+            target.record(line.getGenre(), line.getAuthor(), day, measure, sign * line.getQuantity(),
+                    line.getPrice().multiply(BigDecimal.valueOf((long) sign * line.getQuantity())));
+        }
+    }
+}
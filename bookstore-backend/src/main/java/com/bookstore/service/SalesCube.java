@@ -0,0 +1,215 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.SalesAnalyticsRow;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory genre x author x day sales cube.
+ * Genres and authors are dictionary-encoded; every (genre, author) pair that has sold
+ * anything gets a cell holding primitive per-day arrays indexed by day offset from the origin.
+ */
+public class SalesCube {
+
+    public enum Measure { ORDERED, PAID }
+
+    public enum GroupBy { NONE, GENRE, AUTHOR, DAY }
+
+    private static final int INITIAL_DAYS = 64;
+
+    // Longest range a query may span, about ten years; bounds the per-day buckets of a DAY query
+    public static final int MAX_QUERY_DAYS = 3660;
+
+    private final long originDay;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> genreIds = new HashMap<>();
+    private final List<String> genres = new ArrayList<>();
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private final List<String> authors = new ArrayList<>();
+
+    // cell key = genreId << 32 | authorId
+    private final Map<Long, Integer> cellIds = new HashMap<>();
+    private int[] cellGenre = new int[16];
+    private int[] cellAuthor = new int[16];
+    private int cellCount;
+
+    // [cell][dayOffset]
+    private int[][] orderedUnits = new int[16][];
+    private long[][] orderedCents = new long[16][];
+    private int[][] paidUnits = new int[16][];
+    private long[][] paidCents = new long[16][];
+
+    public SalesCube(LocalDate origin) {
+        this.originDay = origin.toEpochDay();
+    }
+
+    public LocalDate getOrigin() {
+        return LocalDate.ofEpochDay(originDay);
+    }
+
+    public void record(String genre, String author, LocalDate day, Measure measure, int units, BigDecimal revenue) {
+        int offset = (int) (day.toEpochDay() - originDay);
+        if (offset < 0) {
+            return;
+        }
+        long cents = revenue.movePointRight(2).longValue();
+
+        lock.writeLock().lock();
+        try {
+            int cell = cellFor(encode(genre, genreIds, genres), encode(author, authorIds, authors));
+            ensureDays(cell, offset);
+            if (measure == Measure.ORDERED) {
+                orderedUnits[cell][offset] += units;
+                orderedCents[cell][offset] += cents;
+            } else {
+                paidUnits[cell][offset] += units;
+                paidCents[cell][offset] += cents;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SalesAnalyticsRow> query(String genre, String author, LocalDate from, LocalDate to, GroupBy groupBy) {
+        if (to.toEpochDay() - from.toEpochDay() >= MAX_QUERY_DAYS) {
+            throw new RuntimeException("Date range must not exceed " + MAX_QUERY_DAYS + " days");
+        }
+        // Clamped so dates far from the origin cannot overflow; past the recorded days nothing adds up anyway
+        int fromOffset = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(0, from.toEpochDay() - originDay));
+        int toOffset = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(-1, to.toEpochDay() - originDay));
+
+        lock.readLock().lock();
+        try {
+            Integer genreFilter = genre != null ? genreIds.get(genre) : null;
+            Integer authorFilter = author != null ? authorIds.get(author) : null;
+            if ((genre != null && genreFilter == null) || (author != null && authorFilter == null) || toOffset < fromOffset) {
+                return new ArrayList<>();
+            }
+
+            int groups = switch (groupBy) {
+                case NONE -> 1;
+                case GENRE -> genres.size();
+                case AUTHOR -> authors.size();
+                case DAY -> toOffset - fromOffset + 1;
+            };
+            long[] oUnits = new long[groups];
+            long[] oCents = new long[groups];
+            long[] pUnits = new long[groups];
+            long[] pCents = new long[groups];
+
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (genreFilter != null && cellGenre[cell] != genreFilter) continue;
+                if (authorFilter != null && cellAuthor[cell] != authorFilter) continue;
+
+                int last = Math.min(toOffset, orderedUnits[cell].length - 1);
+                for (int d = fromOffset; d <= last; d++) {
+                    int g = switch (groupBy) {
+                        case NONE -> 0;
+                        case GENRE -> cellGenre[cell];
+                        case AUTHOR -> cellAuthor[cell];
+                        case DAY -> d - fromOffset;
+                    };
+                    oUnits[g] += orderedUnits[cell][d];
+                    oCents[g] += orderedCents[cell][d];
+                    pUnits[g] += paidUnits[cell][d];
+                    pCents[g] += paidCents[cell][d];
+                }
+            }
+
+            List<SalesAnalyticsRow> rows = new ArrayList<>();
+            for (int g = 0; g < groups; g++) {
+                if (groupBy != GroupBy.NONE && oUnits[g] == 0 && pUnits[g] == 0) continue;
+                String key = switch (groupBy) {
+                    case NONE -> "total";
+                    case GENRE -> genres.get(g);
+                    case AUTHOR -> authors.get(g);
+                    case DAY -> LocalDate.ofEpochDay(originDay + fromOffset + g).toString();
+                };
+                rows.add(new SalesAnalyticsRow(key, oUnits[g], BigDecimal.valueOf(oCents[g], 2),
+                        pUnits[g], BigDecimal.valueOf(pCents[g], 2)));
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getCellCount() {
+        lock.readLock().lock();
+        try {
+            return cellCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Approximate size of the primitive cell arrays in bytes
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) cellGenre.length * 8;
+            for (int cell = 0; cell < cellCount; cell++) {
+                bytes += (long) orderedUnits[cell].length * (4 + 8 + 4 + 8) + 4 * 16;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int encode(String value, Map<String, Integer> ids, List<String> names) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = names.size();
+            ids.put(value, id);
+            names.add(value);
+        }
+        return id;
+    }
+
+    private int cellFor(int genreId, int authorId) {
+        long key = ((long) genreId << 32) | authorId;
+        Integer cell = cellIds.get(key);
+        if (cell != null) {
+            return cell;
+        }
+        if (cellCount == cellGenre.length) {
+            int capacity = cellCount * 2;
+            cellGenre = Arrays.copyOf(cellGenre, capacity);
+            cellAuthor = Arrays.copyOf(cellAuthor, capacity);
+            orderedUnits = Arrays.copyOf(orderedUnits, capacity);
+            orderedCents = Arrays.copyOf(orderedCents, capacity);
+            paidUnits = Arrays.copyOf(paidUnits, capacity);
+            paidCents = Arrays.copyOf(paidCents, capacity);
+        }
+        int created = cellCount++;
+        cellGenre[created] = genreId;
+        cellAuthor[created] = authorId;
+        orderedUnits[created] = new int[INITIAL_DAYS];
+        orderedCents[created] = new long[INITIAL_DAYS];
+        paidUnits[created] = new int[INITIAL_DAYS];
+        paidCents[created] = new long[INITIAL_DAYS];
+        cellIds.put(key, created);
+        return created;
+    }
+
+    private void ensureDays(int cell, int offset) {
+        int length = orderedUnits[cell].length;
+        if (offset < length) {
+            return;
+        }
+        int capacity = Math.max(length * 2, offset + 1);
+        orderedUnits[cell] = Arrays.copyOf(orderedUnits[cell], capacity);
+        orderedCents[cell] = Arrays.copyOf(orderedCents[cell], capacity);
+        paidUnits[cell] = Arrays.copyOf(paidUnits[cell], capacity);
+        paidCents[cell] = Arrays.copyOf(paidCents[cell], capacity);
+    }
+}
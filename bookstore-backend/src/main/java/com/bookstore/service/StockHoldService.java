@@ -0,0 +1,307 @@
+package com.bookstore.service;
+
+import com.bookstore.dto.OrderItemRequest;
+import com.bookstore.dto.StockHoldDTO;
+import com.bookstore.event.StockChangedEvent;
+import com.bookstore.event.StockHoldReleasedEvent;
+import com.bookstore.model.Book;
+import com.bookstore.model.StockHold;
+import com.bookstore.model.User;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.StockHoldRepository;
+import com.bookstore.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-limited stock holds for checkout. A hold takes its quantities out of books.stock at once,
+ * so other shoppers see them as sold, and is stored in stock_holds so a restart neither loses nor
+ * leaks it. Active holds are mirrored in memory: asking again for a cart that is already held
+ * (and not close to expiry) is answered without touching the database. Holds are indexed by
+ * expiry tick in a time wheel; the sweeper drains due slots every tick and hands stock back in
+ * batches, one short transaction per batch. Placing an order consumes the user's hold.
+ */
+@Service
+public class StockHoldService {
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.holds.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${app.holds.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.holds.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    // slot (expiry tick modulo wheel size) -> users whose hold expires in that tick
+    private List<Set<String>> wheel;
+    // Last tick the sweeper has drained
+    private volatile long sweptTick;
+
+    @PostConstruct
+    public void init() {
+        // A full turn of the wheel spans more than one TTL, so a slot never mixes laps
+        int slots = (int) (ttlMs / tickMs) + 2;
+        wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        sweptTick = System.currentTimeMillis() / tickMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<String, List<StockHoldRepository.HoldLine>> lines = new HashMap<>();
+        for (StockHoldRepository.HoldLine line : stockHoldRepository.findAllLines()) {
+            lines.computeIfAbsent(line.getUsername(), key -> new ArrayList<>()).add(line);
+        }
+        // Holds that expired while the application was down go out with the first sweep
+        lines.forEach((username, userLines) -> {
+            Map<Long, Integer> quantities = new TreeMap<>();
+            long holdId = Long.MAX_VALUE;
+            long expiresAt = Long.MAX_VALUE;
+            for (StockHoldRepository.HoldLine line : userLines) {
+                quantities.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+                holdId = Math.min(holdId, line.getId());
+                expiresAt = Math.min(expiresAt, toMillis(line.getExpiresAt()));
+            }
+            publish(username, new Hold(holdId, Collections.unmodifiableMap(quantities), expiresAt));
+        });
+    }
+
+    public StockHoldDTO reserve(String username, List<OrderItemRequest> items) {
+        Map<Long, Integer> wanted = new TreeMap<>();
+        for (OrderItemRequest item : items) {
+            wanted.merge(item.getBookId(), item.getQuantity(), Integer::sum);
+        }
+
+        Hold current = holds.get(username);
+        if (current != null && current.quantities.equals(wanted)
+                && current.expiresAt - System.currentTimeMillis() > ttlMs / 2) {
+            return toDTO(current);
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Hold hold = transaction.execute(status -> replaceHold(username, Collections.unmodifiableMap(wanted)));
+        publish(username, hold);
+        return toDTO(hold);
+    }
+
+    public void release(String username) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            User user = userRepository.lockByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+            Map<Long, Integer> held = claim(user);
+            restock(held);
+        });
+    }
+
+    // Takes the user's hold for an order being placed in the caller's transaction; book id -> quantity
+    public Map<Long, Integer> claim(User user) {
+        List<StockHold> rows = stockHoldRepository.lockByUserId(user.getId());
+        if (rows.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Long, Integer> held = new HashMap<>();
+        long holdId = Long.MAX_VALUE;
+        for (StockHold row : rows) {
+            held.merge(row.getBook().getId(), row.getQuantity(), Integer::sum);
+            holdId = Math.min(holdId, row.getId());
+        }
+        stockHoldRepository.deleteAllInBatch(rows);
+        eventPublisher.publishEvent(new StockHoldReleasedEvent(user.getUsername(), holdId));
+        return held;
+    }
+
+    @TransactionalEventListener
+    public void onHoldReleased(StockHoldReleasedEvent event) {
+        forget(event.getUsername(), event.getHoldId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.holds.tick-ms:1000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        long nowTick = now / tickMs;
+        // username -> id of the hold found expired
+        Map<String, Long> due = new LinkedHashMap<>();
+        for (long tick = sweptTick + 1; tick <= nowTick; tick++) {
+            Set<String> slot = wheel.get((int) (tick % wheel.size()));
+            for (String username : slot) {
+                slot.remove(username);
+                Hold hold = holds.get(username);
+                // Entries left behind by consumed or renewed holds are dropped here
+                if (hold != null && hold.expiresAt <= now) {
+                    due.put(username, hold.holdId);
+                }
+            }
+        }
+        sweptTick = nowTick;
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<String> usernames = new ArrayList<>(due.keySet());
+        for (int from = 0; from < usernames.size(); from += sweepBatchSize) {
+            List<String> batch = usernames.subList(from, Math.min(from + sweepBatchSize, usernames.size()));
+            try {
+                transaction.executeWithoutResult(status -> releaseExpired(batch));
+                batch.forEach(username -> forget(username, due.get(username)));
+            } catch (RuntimeException e) {
+                // Retried on the next tick
+                batch.forEach(username -> wheel.get((int) ((nowTick + 1) % wheel.size())).add(username));
+            }
+        }
+    }
+
+    public int getActiveHoldCount() {
+        return holds.size();
+    }
+
+    private Hold replaceHold(String username, Map<Long, Integer> wanted) {
+        User user = userRepository.lockByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        Map<Long, Integer> previous = claim(user);
+
+        // Only the difference to the previous hold moves stock, checked against locked book rows
+        Set<Long> bookIds = new TreeSet<>(previous.keySet());
+        bookIds.addAll(wanted.keySet());
+        Map<Long, Book> books = lockBooks(bookIds);
+        // Millisecond precision, so the stored expiry and the in-memory one are the same instant
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(ttlMs)).truncatedTo(ChronoUnit.MILLIS);
+        List<StockHold> rows = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            Book book = books.get(bookId);
+            if (book == null) {
+                throw new RuntimeException("Book not found with id: " + bookId);
+            }
+            int quantity = wanted.getOrDefault(bookId, 0);
+            int delta = quantity - previous.getOrDefault(bookId, 0);
+            if (delta > book.getStock()) {
+                throw new RuntimeException("Insufficient stock for book: " + book.getTitle());
+            }
+            if (delta != 0) {
+                adjustStock(book, -delta);
+            }
+            if (quantity > 0) {
+                rows.add(new StockHold(null, user, book, quantity, expiresAt));
+            }
+        }
+        rows = stockHoldRepository.saveAll(rows);
+
+        long holdId = rows.stream().mapToLong(StockHold::getId).min().orElseThrow();
+        return new Hold(holdId, wanted, toMillis(expiresAt));
+    }
+
+    private void releaseExpired(List<String> usernames) {
+        Map<Long, Integer> released = new TreeMap<>();
+        List<StockHold> rows = stockHoldRepository.lockExpiredByUsernameIn(usernames, LocalDateTime.now());
+        for (StockHold row : rows) {
+            released.merge(row.getBook().getId(), row.getQuantity(), Integer::sum);
+        }
+        stockHoldRepository.deleteAllInBatch(rows);
+        restock(released);
+    }
+
+    // Puts released quantities back on sale in the caller's transaction; book id -> quantity
+    public void restock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        lockBooks(quantities.keySet()).forEach((bookId, book) -> adjustStock(book, quantities.get(bookId)));
+    }
+
+    // Locks the books' rows in ascending id order so concurrent holds, sweeps and orders never deadlock
+    // on each other or move stock from a stale read; book id -> locked book
+    public Map<Long, Book> lockBooks(Collection<Long> bookIds) {
+        Map<Long, Book> books = new TreeMap<>();
+        for (Book book : bookRepository.lockAllByIdIn(bookIds)) {
+            books.put(book.getId(), book);
+        }
+        return books;
+    }
+
+    private void adjustStock(Book book, int delta) {
+        int previousStock = book.getStock();
+        book.setStock(previousStock + delta);
+        bookRepository.save(book);
+        eventPublisher.publishEvent(new StockChangedEvent(book.getId(), book.getTitle(), book.getGenre(),
+                book.getReorderThreshold(), previousStock, book.getStock()));
+    }
+
+    // Row ids only grow, so a later hold of the same user always has the larger holdId
+    private void publish(String username, Hold hold) {
+        Hold kept = holds.merge(username, hold, (old, fresh) -> fresh.holdId >= old.holdId ? fresh : old);
+        if (kept == hold) {
+            long tick = Math.max(Math.floorDiv(hold.expiresAt + tickMs - 1, tickMs), sweptTick + 1);
+            wheel.get((int) (tick % wheel.size())).add(username);
+        }
+    }
+
+    private void forget(String username, long holdId) {
+        holds.computeIfPresent(username, (key, hold) -> hold.holdId == holdId ? null : hold);
+    }
+
+    private StockHoldDTO toDTO(Hold hold) {
+        List<OrderItemRequest> items = new ArrayList<>();
+        hold.quantities.forEach((bookId, quantity) -> items.add(new OrderItemRequest(bookId, quantity)));
+        return new StockHoldDTO(items, LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.expiresAt), ZoneId.systemDefault()));
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class Hold {
+        // Smallest stock_holds row id of the hold
+        final long holdId;
+        final Map<Long, Integer> quantities;
+        final long expiresAt;
+
+        Hold(long holdId, Map<Long, Integer> quantities, long expiresAt) {
+            this.holdId = holdId;
+            this.quantities = quantities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -13,6 +13,8 @@ public class UserDetailsImpl implements UserDetails {
     private String username;
     private String email;
     private String password;
+    private boolean enabled = true;
+    private int tokenVersion;
     private Collection<? extends GrantedAuthority> authorities;
 
     public UserDetailsImpl(Long id, String username, String email, String password,
@@ -26,14 +28,29 @@ public class UserDetailsImpl implements UserDetails {
 
     public static UserDetailsImpl build(User user) {
         GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + user.getRole().name());
-        return new UserDetailsImpl(user.getId(), user.getUsername(), user.getEmail(),
+        UserDetailsImpl details = new UserDetailsImpl(user.getId(), user.getUsername(), user.getEmail(),
                 user.getPassword(), Collections.singletonList(authority));
+        details.enabled = user.isEnabled();
+        details.tokenVersion = user.getTokenVersion();
+        return details;
+    }
+
+    // Principal rebuilt from verified JWT claims; carries no email or password
+    public static UserDetailsImpl fromClaims(Long id, String username, String role, int tokenVersion) {
+        UserDetailsImpl details = new UserDetailsImpl(id, username, null, null,
+                Collections.singletonList(new SimpleGrantedAuthority(role)));
+        details.tokenVersion = tokenVersion;
+        return details;
     }
 
     public Long getId() {
         return id;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
     public String getEmail() {
         return email;
     }
@@ -70,6 +87,6 @@ public class UserDetailsImpl implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return true;
+        return enabled;
     }
 }
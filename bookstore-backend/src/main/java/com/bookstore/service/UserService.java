@@ -0,0 +1,47 @@
+package com.bookstore.service;
+
+import com.bookstore.event.UserSecurityChangedEvent;
+import com.bookstore.model.User;
+import com.bookstore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@Transactional
+public class UserService {
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public void updateRole(Long id, User.Role role) {
+        User user = findUser(id);
+        if (user.getRole() != role) {
+            user.setRole(role);
+            revokeTokens(user);
+        }
+    }
+
+    public void setEnabled(Long id, boolean enabled) {
+        User user = findUser(id);
+        if (user.isEnabled() != enabled) {
+            user.setEnabled(enabled);
+            revokeTokens(user);
+        }
+    }
+
+    private User findUser(Long id) {
+        return userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+    }
+
+    // Outstanding tokens carry the old version and stop authenticating once this commits
+    private void revokeTokens(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getTokenVersion()));
+    }
+}
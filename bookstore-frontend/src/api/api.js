@@ -13,4 +13,52 @@ api.interceptors.request.use((config) => {
   return config;
 });
 
-export default api;
\ No newline at end of file
+// Access tokens are short-lived: on a 401, rotate the refresh token once and retry
+let refreshing = null;
+
+const refreshTokens = async () => {
+  const refreshToken = localStorage.getItem("refreshToken");
+  if (!refreshToken) {
+    throw new Error("No refresh token");
+  }
+  const response = await axios.post(
+    `${import.meta.env.VITE_API_BASE_URL || ""}/api/refresh`,
+    { refreshToken }
+  );
+  localStorage.setItem("token", response.data.token);
+  localStorage.setItem("refreshToken", response.data.refreshToken);
+  return response.data.token;
+};
+
+api.interceptors.response.use(
+  (response) => response,
+  async (error) => {
+    const original = error.config;
+    const isAuthCall = /\/api\/(login|register|refresh|logout)$/.test(original?.url || "");
+    if (error.response?.status !== 401 || !original || original._retried || isAuthCall) {
+      return Promise.reject(error);
+    }
+    original._retried = true;
+    try {
+      refreshing = refreshing || refreshTokens().finally(() => (refreshing = null));
+      const token = await refreshing;
+      original.headers.Authorization = `Bearer ${token}`;
+      return api(original);
+    } catch (refreshError) {
+      localStorage.removeItem("token");
+      localStorage.removeItem("refreshToken");
+      localStorage.removeItem("user");
+      return Promise.reject(error);
+    }
+  }
+);
+
+// Uploaded covers are served by the API under a relative path; w picks a thumbnail width
+export const coverUrl = (imageUrl, width) => {
+  if (!imageUrl || !imageUrl.startsWith("/api/books/covers/")) {
+    return imageUrl;
+  }
+  return `${import.meta.env.VITE_API_BASE_URL || ""}${imageUrl}${width ? `?w=${width}` : ""}`;
+};
+
+export default api;
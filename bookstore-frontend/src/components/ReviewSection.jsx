@@ -7,6 +7,7 @@ import toast from 'react-hot-toast'
 
 const ReviewSection = ({ bookId }) => {
   const [reviews, setReviews] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
   const [loading, setLoading] = useState(true)
   const [showForm, setShowForm] = useState(false)
   const [rating, setRating] = useState(5)
@@ -17,12 +18,22 @@ const ReviewSection = ({ bookId }) => {
 
   useEffect(() => {
     fetchReviews()
-  }, [bookId])
+  }, [bookId, user])
 
-  const fetchReviews = async () => {
+  const fetchReviews = async (cursor = null) => {
     try {
-      const response = await axios.get(`${API_BASE_URL}/api/reviews/book/${bookId}`)
-      setReviews(response.data)
+      if (!user) {
+        // Anonymous visitors get the public, cached summary instead of the full listing
+        const response = await axios.get(`${API_BASE_URL}/api/books/${bookId}/reviews/summary`)
+        setReviews(response.data.latestReviews)
+        setNextCursor(null)
+        return
+      }
+      const response = await axios.get(`${API_BASE_URL}/api/reviews/book/${bookId}`, {
+        params: { size: 20, ...(cursor && { cursor }) },
+      })
+      setReviews((prev) => (cursor ? [...prev, ...response.data.reviews] : response.data.reviews))
+      setNextCursor(response.data.nextCursor)
     } catch (error) {
       console.error('Error fetching reviews:', error)
     } finally {
@@ -213,6 +224,11 @@ const ReviewSection = ({ bookId }) => {
               </div>
             </motion.div>
           ))}
+          {nextCursor && (
+            <button onClick={() => fetchReviews(nextCursor)} className="btn-secondary w-full">
+              Load more reviews
+            </button>
+          )}
         </div>
       )}
     </div>
@@ -34,9 +34,10 @@ export const AuthProvider = ({ children }) => {
         password,
       })
 
-      const { token, ...userData } = response.data
+      const { token, refreshToken, ...userData } = response.data
 
       localStorage.setItem('token', token)
+      localStorage.setItem('refreshToken', refreshToken)
       localStorage.setItem('user', JSON.stringify(userData))
 
       setUser(userData)
@@ -56,9 +57,10 @@ export const AuthProvider = ({ children }) => {
     try {
       const response = await api.post('/api/register', userData)
 
-      const { token, ...user } = response.data
+      const { token, refreshToken, ...user } = response.data
 
       localStorage.setItem('token', token)
+      localStorage.setItem('refreshToken', refreshToken)
       localStorage.setItem('user', JSON.stringify(user))
 
       setUser(user)
@@ -75,7 +77,14 @@ export const AuthProvider = ({ children }) => {
   }
 
   const logout = () => {
+    const token = localStorage.getItem('token')
+    const refreshToken = localStorage.getItem('refreshToken')
+    api
+      .post('/api/logout', { refreshToken }, { headers: { Authorization: `Bearer ${token}` } })
+      .catch(() => {})
+
     localStorage.removeItem('token')
+    localStorage.removeItem('refreshToken')
     localStorage.removeItem('user')
 
     setUser(null)
@@ -1,4 +1,5 @@
 import { createContext, useState, useContext, useEffect } from 'react'
+import api from '../api/api'
 
 const CartContext = createContext()
 
@@ -58,6 +59,26 @@ export const CartProvider = ({ children }) => {
     setCart([])
   }
 
+  // Re-prices the cart against current catalog data in one request; returns the server quote
+  const revalidateCart = async () => {
+    if (cart.length === 0) return null
+    const response = await api.post('/api/books/batch', {
+      items: cart.map((item) => ({ bookId: item.id, quantity: item.quantity })),
+    })
+    const quote = response.data
+    const lines = new Map(quote.lines.map((line) => [line.bookId, line]))
+    setCart((prevCart) =>
+      prevCart
+        .filter((item) => !quote.missingBookIds.includes(item.id))
+        .map((item) =>
+          lines.has(item.id)
+            ? { ...item, price: lines.get(item.id).price, stock: lines.get(item.id).stock }
+            : item
+        )
+    )
+    return quote
+  }
+
   const getTotalPrice = () => {
     return cart.reduce((total, item) => total + item.price * item.quantity, 0)
   }
@@ -74,6 +95,7 @@ export const CartProvider = ({ children }) => {
         removeFromCart,
         updateQuantity,
         clearCart,
+        revalidateCart,
         getTotalPrice,
         getTotalItems,
       }}
@@ -95,6 +95,20 @@ const AdminDashboard = () => {
     }
   }
 
+  const handleCoverUpload = async (e) => {
+    const file = e.target.files[0]
+    if (!file || !editingBook) return
+    const formData = new FormData()
+    formData.append('file', file)
+    try {
+      const response = await api.post(`/api/books/${editingBook.id}/cover`, formData)
+      setBookForm((prev) => ({ ...prev, imageUrl: response.data.imageUrl }))
+      toast.success('Cover uploaded!')
+    } catch (error) {
+      toast.error(typeof error.response?.data === 'string' ? error.response.data : 'Failed to upload cover')
+    }
+  }
+
   const handleDeleteBook = async (id) => {
     if (!window.confirm('Are you sure you want to delete this book?')) return
 
@@ -328,11 +342,19 @@ const AdminDashboard = () => {
                   Image URL
                 </label>
                 <input
-                  type="url"
+                  type="text"
                   className="input-field"
                   value={bookForm.imageUrl}
                   onChange={(e) => setBookForm({ ...bookForm, imageUrl: e.target.value })}
                 />
+                {editingBook && (
+                  <input
+                    type="file"
+                    accept="image/jpeg,image/png"
+                    className="mt-2 text-sm text-gray-700 dark:text-gray-300"
+                    onChange={handleCoverUpload}
+                  />
+                )}
               </div>
 
               <div>
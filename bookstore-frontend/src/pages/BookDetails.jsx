@@ -1,8 +1,8 @@
 import { useState, useEffect } from 'react'
-import { useParams, useNavigate } from 'react-router-dom'
+import { useParams, useNavigate, Link } from 'react-router-dom'
 import { motion } from 'framer-motion'
 import { Star, ShoppingCart, ArrowLeft, Plus, Minus } from 'lucide-react'
-import api from '../api/api'   // changed
+import api, { coverUrl } from '../api/api'   // changed
 import { useCart } from '../context/CartContext'
 import { useAuth } from '../context/AuthContext'
 import toast from 'react-hot-toast'
@@ -16,9 +16,21 @@ const BookDetails = () => {
   const [book, setBook] = useState(null)
   const [loading, setLoading] = useState(true)
   const [quantity, setQuantity] = useState(1)
+  const [related, setRelated] = useState([])
 
   useEffect(() => {
     fetchBook()
+    fetchRelated()
+  }, [id])
+
+  // Live price and stock while the page is open; EventSource reconnects on its own
+  useEffect(() => {
+    const source = new EventSource(`${import.meta.env.VITE_API_BASE_URL || ''}/api/books/${id}/stream`)
+    source.addEventListener('offer', (event) => {
+      const offer = JSON.parse(event.data)
+      setBook((prev) => (prev && prev.id === offer.bookId ? { ...prev, price: offer.price, stock: offer.stock } : prev))
+    })
+    return () => source.close()
   }, [id])
 
   const fetchBook = async () => {
@@ -33,6 +45,15 @@ const BookDetails = () => {
     }
   }
 
+  const fetchRelated = async () => {
+    try {
+      const response = await api.get(`/api/books/${id}/related`, { params: { limit: 4 } })
+      setRelated(response.data)
+    } catch (error) {
+      setRelated([])
+    }
+  }
+
   const handleAddToCart = () => {
     if (!user) {
       toast.error('Please login to add items to cart')
@@ -81,7 +102,7 @@ const BookDetails = () => {
           animate={{ opacity: 1, x: 0 }}
         >
           <img
-            src={book.imageUrl || 'https://via.placeholder.com/500x700'}
+            src={coverUrl(book.imageUrl) || 'https://via.placeholder.com/500x700'}
             alt={book.title}
             className="w-full rounded-lg shadow-lg"
           />
@@ -109,6 +130,23 @@ const BookDetails = () => {
                 ${book.price?.toFixed(2)}
               </span>
             </div>
+            {book.totalReviews > 0 && book.ratingHistogram && (
+              <div className="space-y-1 max-w-xs mb-4">
+                {[5, 4, 3, 2, 1].map((star) => (
+                  <div key={star} className="flex items-center space-x-2 text-sm">
+                    <span className="w-4 text-gray-600 dark:text-gray-400">{star}</span>
+                    <Star className="w-3 h-3 fill-yellow-400 text-yellow-400" />
+                    <div className="flex-1 h-2 bg-gray-200 dark:bg-gray-700 rounded">
+                      <div
+                        className="h-2 bg-yellow-400 rounded"
+                        style={{ width: `${(book.ratingHistogram[star] / book.totalReviews) * 100}%` }}
+                      />
+                    </div>
+                    <span className="w-8 text-right text-gray-500">{book.ratingHistogram[star]}</span>
+                  </div>
+                ))}
+              </div>
+            )}
           </div>
 
           <div>
@@ -161,6 +199,28 @@ const BookDetails = () => {
         </motion.div>
       </div>
 
+      {related.length > 0 && (
+        <div className="mb-12">
+          <h2 className="text-2xl font-bold mb-6 text-gray-900 dark:text-white">
+            Customers who bought this also bought
+          </h2>
+          <div className="grid grid-cols-2 md:grid-cols-4 gap-6">
+            {related.map((other) => (
+              <Link key={other.id} to={`/books/${other.id}`} className="card hover:shadow-xl transition-shadow">
+                <img
+                  src={coverUrl(other.imageUrl, 400) || 'https://via.placeholder.com/300x400'}
+                  alt={other.title}
+                  className="w-full h-48 object-cover rounded-lg mb-3"
+                />
+                <h3 className="font-semibold text-gray-900 dark:text-white line-clamp-2">{other.title}</h3>
+                <p className="text-sm text-gray-600 dark:text-gray-400">{other.author}</p>
+                <span className="text-primary-600 font-bold">${other.price?.toFixed(2)}</span>
+              </Link>
+            ))}
+          </div>
+        </div>
+      )}
+
       <ReviewSection bookId={id} />
     </div>
   )
@@ -2,23 +2,42 @@ import { useState, useEffect } from 'react'
 import { Link } from 'react-router-dom'
 import { motion } from 'framer-motion'
 import { Search, Star, Filter } from 'lucide-react'
-import api from '../api/api'   // changed
+import api, { coverUrl } from '../api/api'   // changed
 
 const BookList = () => {
   const [books, setBooks] = useState([])
   const [loading, setLoading] = useState(true)
   const [searchQuery, setSearchQuery] = useState('')
   const [selectedGenre, setSelectedGenre] = useState('')
+  const [sortBy, setSortBy] = useState('')
   const [genres, setGenres] = useState([])
+  const [suggestions, setSuggestions] = useState([])
+  const [closeMatches, setCloseMatches] = useState(null)
 
   useEffect(() => {
     fetchGenres()
-    fetchBooks()
   }, [])
 
   useEffect(() => {
+    setCloseMatches(null)
     applyFilters()
-  }, [searchQuery, selectedGenre])
+  }, [searchQuery, selectedGenre, sortBy])
+
+  useEffect(() => {
+    if (!searchQuery.trim()) {
+      setSuggestions([])
+      return
+    }
+    const timer = setTimeout(async () => {
+      try {
+        const response = await api.get(`/api/books/suggest`, { params: { prefix: searchQuery, limit: 8 } })
+        setSuggestions(response.data)
+      } catch (error) {
+        setSuggestions([])
+      }
+    }, 150)
+    return () => clearTimeout(timer)
+  }, [searchQuery])
 
   const fetchGenres = async () => {
     try {
@@ -32,7 +51,7 @@ const BookList = () => {
   const fetchBooks = async () => {
     setLoading(true)
     try {
-      const response = await api.get(`/api/books`)   // changed
+      const response = await api.get(`/api/books`, { params: sortBy ? { sort: sortBy } : {} })   // changed
       setBooks(response.data || [])
     } catch (error) {
       console.error('Error fetching books:', error)
@@ -45,11 +64,32 @@ const BookList = () => {
     fetchBooks()
   }
 
-  const handleSearch = (e) => {
+  const filteredBooks = books
+    .filter((b) => (selectedGenre ? b.genre === selectedGenre : true))
+    .filter((b) =>
+      searchQuery
+        ? b.title.toLowerCase().includes(searchQuery.toLowerCase()) ||
+          b.author.toLowerCase().includes(searchQuery.toLowerCase())
+        : true
+    )
+
+  const handleSearch = async (e) => {
     e.preventDefault()
+    if (searchQuery.trim() && filteredBooks.length === 0) {
+      // Nothing matches as typed; ask the server for typo-tolerant matches instead
+      try {
+        const response = await api.get(`/api/books`, { params: { search: searchQuery, fuzzy: true } })
+        setCloseMatches(response.data)
+      } catch (error) {
+        console.error('Error fetching close matches:', error)
+      }
+      return
+    }
     applyFilters()
   }
 
+  const visibleBooks = closeMatches || filteredBooks
+
   return (
     <div className="container mx-auto px-4 py-8">
       <motion.div
@@ -72,7 +112,13 @@ const BookList = () => {
                 value={searchQuery}
                 onChange={(e) => setSearchQuery(e.target.value)}
                 className="input-field pl-10"
+                list="book-suggestions"
               />
+              <datalist id="book-suggestions">
+                {suggestions.map((suggestion) => (
+                  <option key={`${suggestion.type}-${suggestion.text}`} value={suggestion.text} />
+                ))}
+              </datalist>
             </div>
             <button type="submit" className="btn-primary">
               Search
@@ -93,6 +139,14 @@ const BookList = () => {
                 </option>
               ))}
             </select>
+            <select
+              value={sortBy}
+              onChange={(e) => setSortBy(e.target.value)}
+              className="input-field"
+            >
+              <option value="">Default order</option>
+              <option value="popular">Most popular</option>
+            </select>
           </div>
         </div>
 
@@ -101,7 +155,7 @@ const BookList = () => {
           <div className="flex justify-center items-center py-20">
             <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-primary-600"></div>
           </div>
-        ) : books.length === 0 ? (
+        ) : visibleBooks.length === 0 ? (
           <div className="text-center py-20">
             <p className="text-xl text-gray-600 dark:text-gray-400">
               No books found
@@ -109,17 +163,13 @@ const BookList = () => {
           </div>
         ) : (
           <>
+            {closeMatches && (
+              <p className="mb-4 text-gray-600 dark:text-gray-400">
+                No exact matches for "{searchQuery}". Showing close matches:
+              </p>
+            )}
             <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-4 gap-6">
-              {books
-                .filter((b) =>
-                  selectedGenre ? b.genre === selectedGenre : true
-                )
-                .filter((b) =>
-                  searchQuery
-                    ? b.title.toLowerCase().includes(searchQuery.toLowerCase()) ||
-                      b.author.toLowerCase().includes(searchQuery.toLowerCase())
-                    : true
-                )
+              {visibleBooks
                 .map((book, index) => (
                   <motion.div
                     key={book.id}
@@ -131,7 +181,7 @@ const BookList = () => {
                       <div className="card hover:shadow-xl transition-shadow cursor-pointer h-full flex flex-col">
                         <img
                           src={
-                            book.imageUrl ||
+                            coverUrl(book.imageUrl, 400) ||
                             'https://via.placeholder.com/300x400'
                           }
                           alt={book.title}
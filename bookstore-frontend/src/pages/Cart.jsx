@@ -1,15 +1,22 @@
+import { useEffect } from 'react'
 import { motion } from 'framer-motion'
 import { Trash2, Plus, Minus, ShoppingBag } from 'lucide-react'
 import { useCart } from '../context/CartContext'
+import { coverUrl } from '../api/api'
 import { useNavigate } from 'react-router-dom'
 import { useAuth } from '../context/AuthContext'
 import { Link } from 'react-router-dom'
 
 const Cart = () => {
-  const { cart, removeFromCart, updateQuantity, getTotalPrice, clearCart } = useCart()
+  const { cart, removeFromCart, updateQuantity, getTotalPrice, clearCart, revalidateCart } = useCart()
   const navigate = useNavigate()
   const { user } = useAuth()
 
+  // Pick up price and stock changes made since the items were added
+  useEffect(() => {
+    revalidateCart().catch((error) => console.error('Error validating cart:', error))
+  }, [])
+
   const handleCheckout = () => {
     if (!user) {
       navigate('/login')
@@ -50,7 +57,7 @@ const Cart = () => {
               className="card flex items-center space-x-4"
             >
               <img
-                src={item.imageUrl || 'https://via.placeholder.com/100x150'}
+                src={coverUrl(item.imageUrl, 200) || 'https://via.placeholder.com/100x150'}
                 alt={item.title}
                 className="w-24 h-32 object-cover rounded"
               />
@@ -1,4 +1,4 @@
-import { useState } from 'react'
+import { useState, useEffect } from 'react'
 import { useNavigate } from 'react-router-dom'
 import { motion } from 'framer-motion'
 import api from '../api/api'     // changed
@@ -8,12 +8,30 @@ import toast from 'react-hot-toast'
 import { CreditCard, Lock } from 'lucide-react'
 
 const Checkout = () => {
-  const { cart, getTotalPrice, clearCart } = useCart()
+  const { cart, getTotalPrice, clearCart, revalidateCart } = useCart()
   const { user } = useAuth()
   const navigate = useNavigate()
   const [shippingAddress, setShippingAddress] = useState(user?.address || '')
   const [paymentMethod, setPaymentMethod] = useState('card')
   const [processing, setProcessing] = useState(false)
+  const [quote, setQuote] = useState(null)
+  const [hold, setHold] = useState(null)
+
+  useEffect(() => {
+    // Hold the cart first: once held, the quote's stock no longer counts our own copies
+    const items = cart.map((item) => ({ bookId: item.id, quantity: item.quantity }))
+    const reserve = items.length === 0
+      ? Promise.resolve()
+      : api.post('/api/orders/hold', { items })
+          .then((response) => setHold(response.data))
+          .catch((error) => console.error('Error holding stock:', error))
+    reserve
+      .then(() => revalidateCart())
+      .then(setQuote)
+      .catch((error) => console.error('Error validating cart:', error))
+  }, [])
+
+  const unavailable = quote && !hold ? quote.lines.filter((line) => !line.available) : []
 
   const handleSubmit = async (e) => {
     e.preventDefault()
@@ -138,7 +156,7 @@ const Checkout = () => {
 
           <button
             type="submit"
-            disabled={processing || cart.length === 0}
+            disabled={processing || cart.length === 0 || unavailable.length > 0}
             className="btn-primary w-full flex items-center justify-center space-x-2 disabled:opacity-50"
           >
             {processing ? (
@@ -164,6 +182,21 @@ const Checkout = () => {
             <h2 className="text-2xl font-bold mb-4 text-gray-900 dark:text-white">
               Order Summary
             </h2>
+            {hold && (
+              <div className="mb-4 p-3 rounded bg-green-50 dark:bg-gray-700 text-sm text-green-700">
+                Your items are reserved until{' '}
+                {new Date(hold.expiresAt).toLocaleTimeString([], { hour: '2-digit', minute: '2-digit' })}.
+              </div>
+            )}
+            {unavailable.length > 0 && (
+              <div className="mb-4 p-3 rounded bg-red-50 dark:bg-gray-700 text-sm text-red-600">
+                {unavailable.map((line) => (
+                  <p key={line.bookId}>
+                    Only {line.stock} left of "{line.title}" — please update your cart.
+                  </p>
+                ))}
+              </div>
+            )}
             <div className="space-y-4">
               {cart.map((item) => (
                 <div key={item.id} className="flex items-center justify-between">
@@ -2,7 +2,7 @@ import { Link } from 'react-router-dom'
 import { motion } from 'framer-motion'
 import { ArrowRight, BookOpen, Star } from 'lucide-react'
 import { useEffect, useState } from 'react'
-import api from '../api/api'   // changed
+import api, { coverUrl } from '../api/api'   // changed
 
 const Home = () => {
   const [featuredBooks, setFeaturedBooks] = useState([])
@@ -85,7 +85,7 @@ const Home = () => {
               <Link to={`/books/${book.id}`}>
                 <div className="card hover:shadow-xl transition-shadow cursor-pointer">
                   <img
-                    src={book.imageUrl || 'https://via.placeholder.com/300x400'}
+                    src={coverUrl(book.imageUrl, 400) || 'https://via.placeholder.com/300x400'}
                     alt={book.title}
                     className="w-full h-64 object-cover rounded-lg mb-4"
                   />
@@ -7,17 +7,22 @@ import toast from 'react-hot-toast'
 
 const Profile = () => {
   const { user } = useAuth()
+  const [summary, setSummary] = useState(null)
   const [orders, setOrders] = useState([])
+  const [cursor, setCursor] = useState(null)
   const [loading, setLoading] = useState(true)
+  const [loadingMore, setLoadingMore] = useState(false)
 
   useEffect(() => {
-    fetchOrders()
+    fetchSummary()
   }, [])
 
-  const fetchOrders = async () => {
+  const fetchSummary = async () => {
     try {
-      const response = await api.get('/api/orders')
-      setOrders(response.data)
+      const response = await api.get('/api/orders/summary')
+      setSummary(response.data)
+      setOrders(response.data.recentOrders)
+      setCursor(response.data.historyCursor)
     } catch (error) {
       console.error('Error fetching orders:', error)
       toast.error('Failed to load orders')
@@ -26,6 +31,20 @@ const Profile = () => {
     }
   }
 
+  const loadMore = async () => {
+    setLoadingMore(true)
+    try {
+      const response = await api.get('/api/orders/history', { params: { cursor } })
+      setOrders((current) => [...current, ...response.data.orders])
+      setCursor(response.data.nextCursor)
+    } catch (error) {
+      console.error('Error fetching orders:', error)
+      toast.error('Failed to load orders')
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   return (
     <div className="container mx-auto px-4 py-8">
       <h1 className="text-4xl font-bold mb-8 text-gray-900 dark:text-white">My Profile</h1>
@@ -83,6 +102,25 @@ const Profile = () => {
           >
             <h2 className="text-2xl font-bold mb-6 text-gray-900 dark:text-white">My Orders</h2>
 
+            {summary && summary.orderCount > 0 && (
+              <div className="grid grid-cols-3 gap-4 mb-6">
+                <div className="card text-center">
+                  <p className="text-sm text-gray-600 dark:text-gray-400">Orders</p>
+                  <p className="text-2xl font-bold text-gray-900 dark:text-white">{summary.orderCount}</p>
+                </div>
+                <div className="card text-center">
+                  <p className="text-sm text-gray-600 dark:text-gray-400">Lifetime spend</p>
+                  <p className="text-2xl font-bold text-primary-600">${summary.lifetimeSpend.toFixed(2)}</p>
+                </div>
+                <div className="card text-center">
+                  <p className="text-sm text-gray-600 dark:text-gray-400">Last order</p>
+                  <p className="text-2xl font-bold text-gray-900 dark:text-white">
+                    {new Date(summary.lastOrderAt).toLocaleDateString()}
+                  </p>
+                </div>
+              </div>
+            )}
+
             {loading ? (
               <div className="flex justify-center py-12">
                 <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-primary-600"></div>
@@ -99,7 +137,7 @@ const Profile = () => {
                     key={order.id}
                     initial={{ opacity: 0, y: 20 }}
                     animate={{ opacity: 1, y: 0 }}
-                    transition={{ delay: index * 0.1 }}
+                    transition={{ delay: Math.min(index, 5) * 0.1 }}
                     className="card"
                   >
                     <div className="flex items-center justify-between mb-4">
@@ -150,10 +188,10 @@ const Profile = () => {
 
                     <div className="border-t border-gray-200 dark:border-gray-700 pt-4">
                       <div className="space-y-2">
-                        {order.orderItems.map((item) => (
-                          <div key={item.id} className="flex items-center justify-between text-sm">
+                        {order.items.map((item, itemIndex) => (
+                          <div key={`${order.id}-${itemIndex}`} className="flex items-center justify-between text-sm">
                             <span className="text-gray-700 dark:text-gray-300">
-                              {item.book.title} × {item.quantity}
+                              {item.title} × {item.quantity}
                             </span>
                             <span className="font-semibold">
                               ${item.subtotal.toFixed(2)}
@@ -165,6 +203,14 @@ const Profile = () => {
 
                   </motion.div>
                 ))}
+
+                {cursor && (
+                  <div className="text-center">
+                    <button onClick={loadMore} disabled={loadingMore} className="btn-secondary">
+                      {loadingMore ? 'Loading...' : 'Load more'}
+                    </button>
+                  </div>
+                )}
               </div>
             )}
           </motion.div>